@@ -0,0 +1,152 @@
+package parkinglotmanagementsystem.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parkinglotmanagementsystem.parking.model.ParkingLot;
+import parkinglotmanagementsystem.parking.model.ParkingSpot;
+import parkinglotmanagementsystem.parking.model.SpotType;
+import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
+
+/**
+ * Lanes racing to claim spots in memory, with no database involved. Every
+ * spot must be claimed exactly once, both when lanes auto-pick the best
+ * spot and when they all go for the same spots in the same order.
+ *
+ * Usage: ClaimStress [lanes]
+ * Run with "ant stress-claims". Exits with status 1 on a double allocation.
+ */
+public class ClaimStress {
+
+    private static final int DEFAULT_LANES = 8;
+    private static final int FLOORS = 5;
+    private static final int ROWS_PER_FLOOR = 100;
+    private static final int SPOTS_PER_ROW = 400;
+
+    public static void main(String[] args) throws Exception {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LANES;
+        System.out.println("lanes=" + lanes + " cores=" + Runtime.getRuntime().availableProcessors());
+
+        boolean ok = autoPick(lanes) & sameSpots(lanes);
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Every lane claims the best free spot until the lot is full.
+     */
+    private static boolean autoPick(int lanes) throws Exception {
+        ParkingLot lot = newLot();
+        int spots = lot.getTotalSpots();
+        ConcurrentHashMap<ParkingSpot, String> owners = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger claims = new AtomicInteger();
+
+        long elapsed = race(lanes, lane -> {
+            String plate = "LANE" + lane;
+            ParkingSpot spot;
+            while ((spot = lot.claimNextAvailableSpot(VehicleType.SUV, plate)) != null) {
+                if (owners.putIfAbsent(spot, plate) != null) {
+                    duplicates.incrementAndGet();
+                }
+                claims.incrementAndGet();
+            }
+        });
+
+        int free = lot.findAvailableSpots(VehicleType.SUV).size();
+        System.out.printf("auto-pick:  claims=%d/%d duplicates=%d occupied=%d free=%d  %.2f Mclaims/s%n",
+                claims.get(), spots, duplicates.get(), lot.getTotalOccupied(), free, claims.get() / (elapsed / 1e3));
+
+        return duplicates.get() == 0 && claims.get() == spots && lot.getTotalOccupied() == spots && free == 0;
+    }
+
+    /**
+     * Every lane tries every spot in the same order, so each spot is
+     * contended by all of them.
+     */
+    private static boolean sameSpots(int lanes) throws Exception {
+        ParkingLot lot = newLot();
+        List<ParkingSpot> spots = lot.findAllSpots();
+        AtomicInteger[] winners = new AtomicInteger[spots.size()];
+        for (int i = 0; i < winners.length; i++) {
+            winners[i] = new AtomicInteger();
+        }
+
+        long elapsed = race(lanes, lane -> {
+            String plate = "LANE" + lane;
+            for (int i = 0; i < winners.length; i++) {
+                if (spots.get(i).tryOccupy(plate)) {
+                    winners[i].incrementAndGet();
+                }
+            }
+        });
+
+        int doubles = 0;
+        int unclaimed = 0;
+        for (AtomicInteger winner : winners) {
+            if (winner.get() > 1) {
+                doubles++;
+            } else if (winner.get() == 0) {
+                unclaimed++;
+            }
+        }
+        System.out.printf("same spots: spots=%d doubles=%d unclaimed=%d occupied=%d  %.2f Mattempts/s%n",
+                spots.size(), doubles, unclaimed, lot.getTotalOccupied(),
+                (long) spots.size() * lanes / (elapsed / 1e3));
+
+        return doubles == 0 && unclaimed == 0 && lot.getTotalOccupied() == spots.size();
+    }
+
+    private static ParkingLot newLot() {
+        ParkingLot lot = new ParkingLot(FLOORS);
+        for (int floor = 1; floor <= FLOORS; floor++) {
+            for (int row = 1; row <= ROWS_PER_FLOOR; row++) {
+                for (int spot = 1; spot <= SPOTS_PER_ROW; spot++) {
+                    lot.addSpot(new ParkingSpot(floor, row, spot, SpotType.REGULAR));
+                }
+            }
+        }
+        return lot;
+    }
+
+    private interface Lane {
+        void run(int lane);
+    }
+
+    /**
+     * Starts all lanes at once and waits for them.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    private static long race(int lanes, Lane body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(lanes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int lane = 0; lane < lanes; lane++) {
+            int id = lane;
+            futures.add(executor.submit(() -> {
+                start.await();
+                body.run(id);
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        executor.shutdown();
+        return elapsed;
+    }
+}
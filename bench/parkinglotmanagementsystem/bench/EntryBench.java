@@ -0,0 +1,57 @@
+package parkinglotmanagementsystem.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.parking.service.ParkingService;
+import parkinglotmanagementsystem.vehicleandticket.controller.EntryController;
+import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
+
+/**
+ * Parks cars one after another until the lot is full and reports entries
+ * per second, each entry being the full transaction EntryController runs.
+ *
+ * Run with "ant bench-entry", which starts from an empty database.
+ */
+public class EntryBench {
+
+    private static final int WARMUP_ENTRIES = 20;
+
+    public static void main(String[] args) throws Exception {
+        ParkingService parkingService = new ParkingService();
+        parkingService.initializeParkingLot();
+        EntryController entryController = new EntryController(parkingService);
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        int plate = 0;
+        for (int i = 0; i < WARMUP_ENTRIES; i++) {
+            entryController.parkVehicle(plateNumber(plate++), VehicleType.CAR);
+        }
+
+        int entries = 0;
+        long start = System.nanoTime();
+        while (entryController.parkVehicle(plateNumber(plate++), VehicleType.CAR) != null) {
+            entries++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.setOut(out);
+        System.out.printf("%d entries in %d ms, %.0f entries/s%n",
+                entries, elapsed / 1_000_000, entries / (elapsed / 1e9));
+
+        int occupied = parkingService.getParkingLot().getTotalOccupied();
+        if (occupied != WARMUP_ENTRIES + entries) {
+            System.err.println("Occupied spots " + occupied + " do not match " + (WARMUP_ENTRIES + entries) + " entries");
+            System.exit(1);
+        }
+
+        DatabaseManager.getInstance().closeConnection();
+    }
+
+    private static String plateNumber(int n) {
+        return String.format("ENT%04d", n);
+    }
+}
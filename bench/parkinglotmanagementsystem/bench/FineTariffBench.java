@@ -0,0 +1,112 @@
+package parkinglotmanagementsystem.bench;
+
+import java.util.Random;
+
+import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
+import parkinglotmanagementsystem.fineandpayment.model.FineType;
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
+import parkinglotmanagementsystem.fineandpayment.strategy.CompiledTariff;
+import parkinglotmanagementsystem.fineandpayment.strategy.FineCalculationStrategy;
+import parkinglotmanagementsystem.fineandpayment.strategy.FixedFineStrategy;
+import parkinglotmanagementsystem.fineandpayment.strategy.HourlyFineStrategy;
+import parkinglotmanagementsystem.fineandpayment.strategy.ProgressiveFineStrategy;
+import parkinglotmanagementsystem.main.util.Constants;
+
+/**
+ * Compares the fine strategies with their compiled lookup tables, first for
+ * equal results over a wide range of stays, then for speed on a mix of
+ * schemes, fine types and stays of 0 to 240 hours, as the overstay sweep
+ * sees them. A plain timing loop with warm-up rounds, JMH is not among the
+ * libraries in lib/.
+ *
+ * Run with "ant bench-fine-tariff". Exits with status 1 if any result differs.
+ */
+public class FineTariffBench {
+
+    private static final int EVALUATIONS = 10_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int TIMED_ROUNDS = 5;
+    private static final long CHECKED_HOURS = 200_000;
+
+    private static final FineScheme[] SCHEMES = { FineScheme.FIXED, FineScheme.PROGRESSIVE, FineScheme.HOURLY };
+
+    public static void main(String[] args) {
+        Tariff tariff = Tariff.defaults();
+        long threshold = tariff.getOverstayThresholdHours();
+
+        FineCalculationStrategy[] strategies = {
+                new FixedFineStrategy(threshold, tariff.getFixedFineAmount()),
+                new ProgressiveFineStrategy(threshold, tariff.getProgressiveTiers()),
+                new HourlyFineStrategy(threshold, tariff.getHourlyFineRate(), tariff.getFixedFineAmount())
+        };
+
+        CompiledTariff compiledTariff = CompiledTariff.compile(tariff, Constants.FINE_TARIFF_HORIZON_HOURS);
+        FineCalculationStrategy[] compiled = new FineCalculationStrategy[SCHEMES.length];
+        for (int i = 0; i < SCHEMES.length; i++) {
+            compiled[i] = compiledTariff.getStrategy(SCHEMES[i]);
+        }
+
+        long mismatches = countMismatches(strategies, compiled);
+        System.out.println("mismatches over -5.." + CHECKED_HOURS + " hours: " + mismatches);
+
+        Random random = new Random(42);
+        int[] schemes = new int[EVALUATIONS];
+        long[] hours = new long[EVALUATIONS];
+        FineType[] fineTypes = new FineType[EVALUATIONS];
+        for (int i = 0; i < EVALUATIONS; i++) {
+            schemes[i] = random.nextInt(SCHEMES.length);
+            hours[i] = random.nextInt(240);
+            fineTypes[i] = random.nextInt(10) == 0 ? FineType.RESERVED_MISUSE : FineType.OVERSTAY;
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sum(strategies, schemes, hours, fineTypes);
+            sum(compiled, schemes, hours, fineTypes);
+        }
+
+        double bestStrategies = Double.MAX_VALUE;
+        double bestCompiled = Double.MAX_VALUE;
+        boolean sameSums = true;
+        for (int round = 0; round < TIMED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            double strategySum = sum(strategies, schemes, hours, fineTypes);
+            long middle = System.nanoTime();
+            double compiledSum = sum(compiled, schemes, hours, fineTypes);
+            long end = System.nanoTime();
+
+            bestStrategies = Math.min(bestStrategies, (middle - start) / (double) EVALUATIONS);
+            bestCompiled = Math.min(bestCompiled, (end - middle) / (double) EVALUATIONS);
+            sameSums &= strategySum == compiledSum;
+        }
+
+        System.out.printf("strategies %.2f ns/op, compiled %.2f ns/op (best of %d rounds of %,d)%n",
+                bestStrategies, bestCompiled, TIMED_ROUNDS, EVALUATIONS);
+
+        if (mismatches > 0 || !sameSums) {
+            System.out.println("FAILED: compiled tables and strategies disagree");
+            System.exit(1);
+        }
+    }
+
+    private static long countMismatches(FineCalculationStrategy[] strategies, FineCalculationStrategy[] compiled) {
+        long mismatches = 0;
+        for (int i = 0; i < strategies.length; i++) {
+            for (FineType fineType : FineType.values()) {
+                for (long h = -5; h <= CHECKED_HOURS; h++) {
+                    if (Double.compare(strategies[i].calculateFine(h, fineType), compiled[i].calculateFine(h, fineType)) != 0) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static double sum(FineCalculationStrategy[] strategies, int[] schemes, long[] hours, FineType[] fineTypes) {
+        double sum = 0;
+        for (int i = 0; i < hours.length; i++) {
+            sum += strategies[schemes[i]].calculateFine(hours[i], fineTypes[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,145 @@
+package parkinglotmanagementsystem.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.parking.service.ParkingService;
+import parkinglotmanagementsystem.vehicleandticket.controller.EntryController;
+import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
+
+/**
+ * Entry lanes parking at the same time through EntryController: first all
+ * of them parking one shared plate, then more cars than the lot holds. The database and memory must agree afterwards: one open ticket
+ * per occupied spot, no spot given out twice and the shared plate parked
+ * once.
+ *
+ * Usage: LaneStress [lanes] [cars per lane]
+ * Run with "ant stress-lanes", which starts from an empty database. Exits
+ * with status 1 on a double allocation or a mismatch.
+ */
+public class LaneStress {
+
+    private static final int DEFAULT_LANES = 4;
+    private static final int DEFAULT_CARS_PER_LANE = 60;
+    private static final String SHARED_PLATE = "SHR0001";
+
+    public static void main(String[] args) throws Exception {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LANES;
+        int carsPerLane = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CARS_PER_LANE;
+
+        ParkingService parkingService = new ParkingService();
+        parkingService.initializeParkingLot();
+        EntryController entryController = new EntryController(parkingService);
+        int spots = parkingService.getParkingLot().getTotalSpots();
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+        int sharedParked = race(lanes, lane -> entryController.parkVehicle(SHARED_PLATE, VehicleType.CAR) != null ? 1 : 0);
+
+        long start = System.nanoTime();
+        int parked = race(lanes, lane -> {
+            int ok = 0;
+            for (int i = 0; i < carsPerLane; i++) {
+                String plate = String.format("LN%c%04d", (char) ('A' + lane), i);
+                if (entryController.parkVehicle(plate, VehicleType.CAR) != null) {
+                    ok++;
+                }
+            }
+            return ok;
+        });
+        long elapsed = System.nanoTime() - start;
+
+
+        System.setOut(out);
+        System.setErr(err);
+
+        int memoryOccupied = parkingService.getParkingLot().getTotalOccupied();
+        int openTickets;
+        int ticketedSpots;
+        int databaseOccupied;
+        int sharedTickets;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*), COUNT(DISTINCT spot_id) FROM tickets WHERE exit_time IS NULL;")) {
+                rs.next();
+                openTickets = rs.getInt(1);
+                ticketedSpots = rs.getInt(2);
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM parking_spots WHERE is_occupied = 1;")) {
+                rs.next();
+                databaseOccupied = rs.getInt(1);
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*) FROM tickets WHERE plate_number = '" + SHARED_PLATE + "' AND exit_time IS NULL;")) {
+                rs.next();
+                sharedTickets = rs.getInt(1);
+            }
+        }
+
+        int expected = parked + sharedParked;
+        System.out.printf("lanes=%d cars=%d spots=%d parked=%d in %d ms (%.0f entries/s)%n",
+                lanes, lanes * carsPerLane, spots, parked, elapsed / 1_000_000, parked / (elapsed / 1e9));
+        System.out.printf("shared plate parked by %d lanes, %d open tickets%n", sharedParked, sharedTickets);
+        System.out.printf("open tickets=%d ticketed spots=%d occupied in database=%d in memory=%d%n",
+                openTickets, ticketedSpots, databaseOccupied, memoryOccupied);
+
+        DatabaseManager.getInstance().closeConnection();
+
+        boolean ok = openTickets == expected
+                && ticketedSpots == expected
+                && databaseOccupied == expected
+                && memoryOccupied == expected
+                && sharedParked == 1
+                && sharedTickets == 1;
+        if (!ok) {
+            System.out.println("FAILED: spots double allocated or memory and database disagree");
+            System.exit(1);
+        }
+    }
+
+    private interface Lane {
+        int run(int lane);
+    }
+
+    /**
+     * Starts all lanes at once and waits for them.
+     *
+     * @return the sum of what the lanes returned
+     */
+    private static int race(int lanes, Lane body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(lanes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int lane = 0; lane < lanes; lane++) {
+            int id = lane;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return body.run(id);
+            }));
+        }
+
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get();
+        }
+
+        executor.shutdown();
+        return total;
+    }
+}
@@ -0,0 +1,162 @@
+package parkinglotmanagementsystem.bench;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+
+import parkinglotmanagementsystem.fineandpayment.dao.FineDAO;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.parking.service.ParkingService;
+import parkinglotmanagementsystem.vehicleandticket.dao.TicketDAO;
+
+/**
+ * Times TicketDAO.findActiveTicket and FineDAO.getUnpaidFines as the
+ * tickets table grows. With the partial indexes in place both should stay
+ * flat whatever the table size.
+ *
+ * Usage: LookupBench [ticket counts, comma separated]
+ * Run with "ant bench-lookups", which starts from an empty database.
+ */
+public class LookupBench {
+
+    private static final String DEFAULT_SIZES = "10000,100000,1000000";
+    private static final int PLATE_COUNT = 100_000;
+    private static final int WARMUP_LOOKUPS = 2_000;
+    private static final int TIMED_LOOKUPS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : DEFAULT_SIZES).split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        TicketDAO ticketDAO = new TicketDAO();
+        FineDAO fineDAO = new FineDAO();
+
+        new ParkingService().initializeParkingLot();
+        seedVehicles(dbManager);
+        printPlans(dbManager);
+
+        int seeded = 0;
+        for (int size : sizes) {
+            long start = System.nanoTime();
+            seedTickets(dbManager, seeded, size);
+            seeded = Math.max(seeded, size);
+            System.out.printf("%n%,d tickets (seeded in %d ms)%n", size, (System.nanoTime() - start) / 1_000_000);
+
+            Random random = new Random(size);
+            report("findActiveTicket", time(random, plate -> ticketDAO.findActiveTicket(plate)));
+            report("getUnpaidFines", time(random, plate -> fineDAO.getUnpaidFines(plate)));
+        }
+
+        dbManager.closeConnection();
+    }
+
+    private static void seedVehicles(DatabaseManager dbManager) throws Exception {
+        try (Connection conn = dbManager.getWriteConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    WITH RECURSIVE k(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM k WHERE i < %d)
+                    INSERT OR IGNORE INTO vehicles (plate_number, vehicle_type)
+                    SELECT %s, 'CAR' FROM k;
+                    """.formatted(PLATE_COUNT - 1, plateExpression("i")));
+        }
+    }
+
+    /**
+     * Adds tickets from..to-1. Ticket i belongs to plate i % PLATE_COUNT,
+     * one in 5,000 is still open, one in 10 has a fine and one in 20 of
+     * those is unpaid.
+     */
+    private static void seedTickets(DatabaseManager dbManager, int from, int to) throws Exception {
+        if (to <= from) {
+            return;
+        }
+
+        try (Connection conn = dbManager.getWriteConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    WITH RECURSIVE k(i) AS (SELECT %d UNION ALL SELECT i + 1 FROM k WHERE i < %d)
+                    INSERT INTO tickets (ticket_id, plate_number, spot_id, entry_time, exit_time, fine_scheme)
+                    SELECT printf('T-B%%09d', i), %s, 'F1-R1-S1',
+                           strftime('%%Y-%%m-%%dT%%H:%%M:%%S', '2020-01-01', printf('+%%d minutes', i)),
+                           CASE WHEN i %% 5000 <> 0
+                                THEN strftime('%%Y-%%m-%%dT%%H:%%M:%%S', '2020-01-01', printf('+%%d minutes', i + 90)) END,
+                           'FIXED'
+                    FROM k;
+                    """.formatted(from, to - 1, plateExpression("i % " + PLATE_COUNT)));
+            stmt.execute("""
+                    WITH RECURSIVE k(i) AS (SELECT %d UNION ALL SELECT i + 10 FROM k WHERE i + 10 < %d)
+                    INSERT INTO fines (plate_number, ticket_id, fine_type, fine_amount, fine_scheme, is_paid, created_at)
+                    SELECT %s, printf('T-B%%09d', i), 'OVERSTAY', 50.0, 'FIXED',
+                           CASE WHEN (i / 10) %% 20 = 0 THEN 0 ELSE 1 END,
+                           strftime('%%Y-%%m-%%dT%%H:%%M:%%S', '2020-01-01', printf('+%%d minutes', i + 90))
+                    FROM k;
+                    """.formatted(roundUpToTen(from), to, plateExpression("i % " + PLATE_COUNT)));
+            stmt.execute("ANALYZE;");
+        }
+    }
+
+    private static int roundUpToTen(int value) {
+        return (value + 9) / 10 * 10;
+    }
+
+    /**
+     * SQL for plate number n, in the 3 letters + 4 digits format.
+     */
+    private static String plateExpression(String n) {
+        return "printf('BN%s%04d', char(65 + (" + n + ") / 10000), (" + n + ") % 10000)";
+    }
+
+    private static void printPlans(DatabaseManager dbManager) throws Exception {
+        String[] queries = {
+                "SELECT * FROM tickets WHERE plate_number = 'BNA0001' AND exit_time IS NULL ORDER BY entry_time DESC LIMIT 1",
+                "SELECT * FROM fines WHERE plate_number = 'BNA0001' AND is_paid = 0 ORDER BY created_at ASC"
+        };
+
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement()) {
+            for (String query : queries) {
+                try (ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + query)) {
+                    while (rs.next()) {
+                        System.out.println("plan: " + rs.getString("detail"));
+                    }
+                }
+            }
+        }
+    }
+
+    private interface Lookup {
+        void run(String plateNumber);
+    }
+
+    private static long[] time(Random random, Lookup lookup) {
+        for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+            lookup.run(randomPlate(random));
+        }
+
+        long[] nanos = new long[TIMED_LOOKUPS];
+        for (int i = 0; i < nanos.length; i++) {
+            String plate = randomPlate(random);
+            long start = System.nanoTime();
+            lookup.run(plate);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static String randomPlate(Random random) {
+        int n = random.nextInt(PLATE_COUNT);
+        return String.format("BN%c%04d", (char) ('A' + n / 10000), n % 10000);
+    }
+
+    private static void report(String name, long[] sortedNanos) {
+        double mean = Arrays.stream(sortedNanos).average().orElse(0) / 1_000.0;
+        double p50 = sortedNanos[sortedNanos.length / 2] / 1_000.0;
+        double p99 = sortedNanos[sortedNanos.length * 99 / 100] / 1_000.0;
+        System.out.printf("  %-17s mean %7.1f us   p50 %7.1f us   p99 %7.1f us%n", name, mean, p50, p99);
+    }
+}
@@ -2,47 +2,56 @@ package parkinglotmanagementsystem.admin.controller;
 
 import parkinglotmanagementsystem.fineandpayment.model.Fine;
 import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
+import parkinglotmanagementsystem.fineandpayment.model.Payment;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueBucket;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueGranularity;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueTotals;
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
 import parkinglotmanagementsystem.fineandpayment.service.*;
-import parkinglotmanagementsystem.main.dao.SystemConfigDAO;
-import parkinglotmanagementsystem.parking.model.Floor;
+import parkinglotmanagementsystem.main.dao.SystemConfigCache;
+import parkinglotmanagementsystem.parking.model.OccupancySnapshot;
 import parkinglotmanagementsystem.parking.model.ParkingLot;
 import parkinglotmanagementsystem.parking.model.SpotType;
 import parkinglotmanagementsystem.parking.service.ParkingService;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 import parkinglotmanagementsystem.vehicleandticket.service.TicketService;
+import parkinglotmanagementsystem.vehicleandticket.service.VehicleCache;
 
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class AdminController {
 
-    private SystemConfigDAO configDAO;
+    private SystemConfigCache configCache;
     private FineManager fineManager;
     private ParkingService parkingService;
     private TicketService ticketService;
     private PaymentService paymentService;
+    private TariffRegistry tariffRegistry;
 
     public AdminController(ParkingService parkingService, FineManager fineManager, PaymentService paymentService) {
-        this.configDAO = new SystemConfigDAO();
+        this.configCache = SystemConfigCache.getInstance();
         this.fineManager = fineManager;
         this.parkingService = parkingService;
         this.ticketService = new TicketService();
         this.paymentService = paymentService;
+        this.tariffRegistry = TariffRegistry.getInstance();
     }
 
     public boolean changeFineScheme(FineScheme newScheme) {
         // Update system configuration
-        boolean configUpdated = configDAO.setFineScheme(newScheme);
+        // FineManager follows the cached config
+        boolean configUpdated = configCache.setFineScheme(newScheme);
 
         if (!configUpdated) {
             System.err.println("Failed to update fine scheme in database");
             return false;
         }
 
-        // update FineManager strategy
-        fineManager.setFineStrategy(newScheme);
-
         System.out.println("=== FINE SCHEME CHANGED ===");
         System.out.println("New Scheme: " + newScheme);
         System.out.println("Effective: FUTURE ENTRIES ONLY");
@@ -52,62 +61,140 @@ public class AdminController {
     }
 
     public FineScheme getCurrentFineScheme() {
-        return configDAO.getCurrentFineScheme();
+        return configCache.getCurrentFineScheme();
+    }
+
+    public Tariff getActiveTariff() {
+        return tariffRegistry.getActiveTariff();
+    }
+
+    /**
+     * Saves the draft as a new tariff version and makes it active. Only
+     * vehicles entering from now on are billed with it.
+     *
+     * @return the published tariff, or null if it could not be saved
+     */
+    public Tariff publishTariff(Tariff draft) {
+        Tariff published = tariffRegistry.publish(draft);
+        if (published == null) {
+            return null;
+        }
+
+        if (!parkingService.applyHourlyRates(published)) {
+            System.err.println("Failed to reprice parking spots for tariff version " + published.getVersion());
+        }
+
+        System.out.println("=== TARIFF CHANGED ===");
+        System.out.println("New Tariff: " + published);
+        System.out.println("Effective: FUTURE ENTRIES ONLY");
+
+        return published;
+    }
+
+    /**
+     * Reloads the tariffs from the database, e.g. after the tariffs table
+     * or the active version in system_config was edited.
+     *
+     * @return the active tariff, or null if the reload failed
+     */
+    public Tariff reloadTariffs() {
+        if (!tariffRegistry.reload()) {
+            return null;
+        }
+
+        Tariff active = tariffRegistry.getActiveTariff();
+        if (!parkingService.applyHourlyRates(active)) {
+            System.err.println("Failed to reprice parking spots for tariff version " + active.getVersion());
+        }
+        return active;
     }
 
     public Map<String, Object> getOccupancyStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        ParkingLot parkingLot = parkingService.getParkingLot();
+        // one consistent copy of the maintained counters, no spot scan
+        OccupancySnapshot occupancy = parkingService.getOccupancySnapshot();
 
-        stats.put("totalSpots", parkingLot.getTotalSpots());
-        stats.put("occupiedSpots", parkingLot.getTotalOccupied());
-        stats.put("availableSpots", parkingLot.getTotalSpots() - parkingLot.getTotalOccupied());
-        stats.put("globalOccupancyRate", parkingLot.getGlobalOccupancyRate());
+        stats.put("totalSpots", occupancy.getTotalSpots());
+        stats.put("occupiedSpots", occupancy.getOccupiedSpots());
+        stats.put("availableSpots", occupancy.getAvailableSpots());
+        stats.put("globalOccupancyRate", occupancy.getOccupancyRate());
 
         // optional: floor-by-floor breakdown
         Map<Integer, Map<String, Object>> floorStats = new HashMap<>();
-        for (Floor floor : parkingLot.getAllFloors()) {
+        for (OccupancySnapshot.FloorOccupancy floor : occupancy.getFloors()) {
             Map<String, Object> floorData = new HashMap<>();
             floorData.put("totalSpots", floor.getTotalSpots());
-            floorData.put("occupiedSpots", floor.getOccupiedCount());
-            floorData.put("availableSpots", floor.getTotalSpots() - floor.getOccupiedCount());
+            floorData.put("occupiedSpots", floor.getOccupiedSpots());
+            floorData.put("availableSpots", floor.getAvailableSpots());
             floorData.put("occupancyRate", floor.getOccupancyRate());
             floorStats.put(floor.getFloorNumber(), floorData);
         }
         stats.put("floorStats", floorStats);
 
+        // spot-type breakdown
+        Map<SpotType, Map<String, Object>> typeStats = new EnumMap<>(SpotType.class);
+        for (SpotType spotType : SpotType.values()) {
+            Map<String, Object> typeData = new HashMap<>();
+            typeData.put("totalSpots", occupancy.getTotalSpots(spotType));
+            typeData.put("occupiedSpots", occupancy.getOccupiedSpots(spotType));
+            typeData.put("availableSpots", occupancy.getAvailableSpots(spotType));
+            typeStats.put(spotType, typeData);
+        }
+        stats.put("typeStats", typeStats);
+
         return stats;
     }
 
     public Map<String, Object> getRevenueStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        double totalRevenue = paymentService.getTotalRevenue();
-        double parkingRevenue = paymentService.getTotalParkingRevenue();
-        double fineRevenue = paymentService.getTotalFineRevenue();
-        int paymentCount = paymentService.getPaymentCount();
+        // one snapshot so the figures agree with each other
+        RevenueTotals totals = paymentService.getRevenueTotals();
 
-        stats.put("totalRevenue", totalRevenue);
-        stats.put("parkingRevenue", parkingRevenue);
-        stats.put("fineRevenue", fineRevenue);
-        stats.put("paymentCount", paymentCount);
-        stats.put("averageTransaction", paymentCount > 0 ? totalRevenue / paymentCount : 0.0);
+        stats.put("totalRevenue", totals.getTotalRevenue());
+        stats.put("parkingRevenue", totals.getParkingRevenue());
+        stats.put("fineRevenue", totals.getFineRevenue());
+        stats.put("paymentCount", totals.getPaymentCount());
+        stats.put("averageTransaction", totals.getAverageTransaction());
 
         return stats;
     }
 
+    public boolean forEachPayment(Consumer<? super Payment> visitor) {
+        return paymentService.forEachPayment(visitor);
+    }
+
+    public List<RevenueBucket> getRevenueByBucket(RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        return paymentService.getRevenueByBucket(granularity, from, to);
+    }
+
+    public List<RevenueBucket> getRevenueBreakdown(RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        return paymentService.getRevenueBreakdown(granularity, from, to);
+    }
+
     public Map<String, Object> getFineStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        List<Fine> unpaidFines = fineManager.getAllUnpaidFines();
-        double totalUnpaid = unpaidFines.stream()
-                .mapToDouble(Fine::getFineAmount)
-                .sum();
+        // aggregated in the database, the fines themselves are paged
+        stats.put("unpaidFineCount", fineManager.getUnpaidFineCount());
+        stats.put("totalUnpaidAmount", fineManager.getTotalUnpaidFineAmount());
+
+        return stats;
+    }
 
-        stats.put("unpaidFineCount", unpaidFines.size());
-        stats.put("totalUnpaidAmount", totalUnpaid);
-        stats.put("unpaidFines", unpaidFines);
+    public Map<String, Object> getVehicleCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        VehicleCache vehicleCache = VehicleCache.getInstance();
+
+        stats.put("size", vehicleCache.size());
+        stats.put("maxEntries", vehicleCache.getMaxEntries());
+        stats.put("hits", vehicleCache.getHitCount());
+        stats.put("misses", vehicleCache.getMissCount());
+        stats.put("evictions", vehicleCache.getEvictionCount());
+        stats.put("hitRate", vehicleCache.getHitRate());
 
         return stats;
     }
@@ -120,6 +207,22 @@ public class AdminController {
         return fineManager.getAllUnpaidFines();
     }
 
+    public List<Ticket> getCurrentlyParkedVehiclesPage(Ticket after, int skip, int limit) {
+        return ticketService.getParkedVehiclesPage(after, skip, limit);
+    }
+
+    public int getCurrentlyParkedCount() {
+        return ticketService.getParkedVehicleCount();
+    }
+
+    public List<Fine> getUnpaidFinesPage(Fine after, int skip, int limit) {
+        return fineManager.getUnpaidFinesPage(after, skip, limit);
+    }
+
+    public int getUnpaidFineCount() {
+        return fineManager.getUnpaidFineCount();
+    }
+
     public Map<String, Object> getSystemStats() {
         Map<String, Object> stats = new HashMap<>();
 
@@ -134,11 +237,14 @@ public class AdminController {
         Map<String, Object> fineStats = getFineStats();
         stats.put("fines", fineStats);
 
+        stats.put("vehicleCache", getVehicleCacheStats());
+
         // Current state
         stats.put("currentlyParked", ticketService.getParkedVehicleCount());
         stats.put("totalTicketsIssued", ticketService.getTotalTicketCount());
         // stats.put("activeReservations", reservationService.getActiveReservationCount());
         stats.put("currentFineScheme", getCurrentFineScheme());
+        stats.put("activeTariffVersion", tariffRegistry.getActiveVersion());
 
         return stats;
     }
@@ -147,6 +253,10 @@ public class AdminController {
         return parkingService.getParkingLot();
     }
 
+    public void reloadParkingLot() {
+        parkingService.loadParkingLot();
+    }
+
     public boolean updateSpotType(String spotId, SpotType spotType) {
         return parkingService.updateSpotType(spotId, spotType);
     }
@@ -4,99 +4,125 @@ import parkinglotmanagementsystem.fineandpayment.model.Fine;
 import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
 import parkinglotmanagementsystem.fineandpayment.model.FineType;
 import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.ResultCursor;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class FineDAO {
 
-    private Connection connection;
+    private DatabaseManager dbManager;
 
     public FineDAO() {
-        this.connection = DatabaseManager.getInstance().getConnection();
+        this.dbManager = DatabaseManager.getInstance();
     }
 
-    public boolean insertFine(Fine fine) {
+    /**
+     * Saves the fines in one statement. A fine whose ticket already has an
+     * unpaid fine of the same type updates that fine's amount instead; its
+     * id and creation time are kept. One that was already paid is never
+     * changed and is left out of the result.
+     *
+     * @return the fines written, as stored and in the given order, or null
+     *         on error
+     */
+    public List<Fine> upsertFines(List<Fine> fines) {
+        if (fines.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String rows = String.join(", ", Collections.nCopies(fines.size(), "(?, ?, ?, ?, ?, ?, ?)"));
         String sql = """
                     INSERT INTO fines
                     (plate_number, ticket_id, fine_type, fine_amount, fine_scheme, is_paid, created_at)
-                    VALUES (?, ?, ?, ?, ?, ?, ?);
-                """;
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, fine.getPlateNumber());
-            pstmt.setString(2, fine.getTicketId());
-            pstmt.setString(3, fine.getFineType().name());
-            pstmt.setDouble(4, fine.getFineAmount());
-            pstmt.setString(5, fine.getFineScheme().name());
-            pstmt.setInt(6, fine.isPaid() ? 1 : 0);
-            pstmt.setString(7, TimeUtil.formatForDatabase(fine.getCreatedAt()));
-
-            pstmt.executeUpdate();
-
-            // Get generated fine ID
-            ResultSet rs = pstmt.getGeneratedKeys();
-            if (rs.next()) {
-                fine.setFineId(rs.getInt(1));
+                    VALUES %s
+                    ON CONFLICT(ticket_id, fine_type) DO UPDATE SET fine_amount = excluded.fine_amount
+                    WHERE fines.is_paid = 0
+                    RETURNING *;
+                """.formatted(rows);
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindFineRows(pstmt, fines);
+
+            // RETURNING rows come back in no particular order, and without
+            // the paid fines the conflict clause skipped
+            Map<String, Fine> savedByKey = new HashMap<>();
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                Fine saved = extractFineFromResultSet(rs);
+                savedByKey.put(saved.getTicketId() + "/" + saved.getFineType(), saved);
             }
 
-            return true;
+            List<Fine> savedFines = new ArrayList<>(savedByKey.size());
+            for (Fine fine : fines) {
+                Fine saved = savedByKey.get(fine.getTicketId() + "/" + fine.getFineType());
+                if (saved != null) {
+                    savedFines.add(saved);
+                }
+            }
+            return savedFines;
         } catch (SQLException e) {
-            System.err.println("Failed to insert fine for plate: " + fine.getPlateNumber());
+            System.err.println("Failed to upsert " + fines.size() + " fines");
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
-    public boolean updateFine(Fine fine) {
-        String sql = """
-                    UPDATE fines
-                    SET plate_number = ? , ticket_id = ?, fine_type = ?, fine_amount = ?, fine_scheme = ?, is_paid = ?, created_at = ?
-                    WHERE fine_id = ?;
-                """;
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, fine.getPlateNumber());
-            pstmt.setString(2, fine.getTicketId());
-            pstmt.setString(3, fine.getFineType().name());
-            pstmt.setDouble(4, fine.getFineAmount());
-            pstmt.setString(5, fine.getFineScheme().name());
-            pstmt.setInt(6, fine.isPaid() ? 1 : 0);
-            pstmt.setString(7, TimeUtil.formatForDatabase(fine.getCreatedAt()));
-            pstmt.setInt(8, fine.getFineId());
-
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            System.err.println("Failed to update fine for plate: " + fine.getPlateNumber());
-            e.printStackTrace();
-            return false;
+    /**
+     * Like upsertFines, but for jobs running alongside the exits: a fine is
+     * also only written while its ticket is still parked.
+     *
+     * @return the number of fines written, or -1 on error
+     */
+    public int upsertParkedTicketFines(List<Fine> fines) {
+        if (fines.isEmpty()) {
+            return 0;
         }
-    }
 
-    public Fine getFineByTicketIdAndFineType(String ticket, FineType fineType) {
+        String rows = String.join(", ", Collections.nCopies(fines.size(), "(?, ?, ?, ?, ?, ?, ?)"));
         String sql = """
-                    SELECT * FROM fines
-                    WHERE ticket_id = ? AND fine_type = ?;
-                """;
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, ticket);
-            pstmt.setString(2, fineType.toString());
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return extractFineFromResultSet(rs);
-            }
+                    INSERT INTO fines
+                    (plate_number, ticket_id, fine_type, fine_amount, fine_scheme, is_paid, created_at)
+                    SELECT v.column1, v.column2, v.column3, v.column4, v.column5, v.column6, v.column7
+                    FROM (VALUES %s) AS v
+                    JOIN tickets t ON t.ticket_id = v.column2 AND t.exit_time IS NULL
+                    WHERE true
+                    ON CONFLICT(ticket_id, fine_type) DO UPDATE SET fine_amount = excluded.fine_amount
+                    WHERE fines.is_paid = 0;
+                """.formatted(rows);
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindFineRows(pstmt, fines);
+
+            return pstmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Failed to get unpaid fines for: " + ticket);
+            System.err.println("Failed to upsert " + fines.size() + " fines of parked tickets");
             e.printStackTrace();
+            return -1;
         }
+    }
 
-        return null;
+    private void bindFineRows(PreparedStatement pstmt, List<Fine> fines) throws SQLException {
+        int index = 1;
+        for (Fine fine : fines) {
+            pstmt.setString(index++, fine.getPlateNumber());
+            pstmt.setString(index++, fine.getTicketId());
+            pstmt.setString(index++, fine.getFineType().name());
+            pstmt.setDouble(index++, fine.getFineAmount());
+            pstmt.setString(index++, fine.getFineScheme().name());
+            pstmt.setInt(index++, fine.isPaid() ? 1 : 0);
+            pstmt.setString(index++, TimeUtil.formatForDatabase(fine.getCreatedAt()));
+        }
     }
 
     public List<Fine> getUnpaidFines(String plateNumber) {
@@ -108,7 +134,8 @@ public class FineDAO {
 
         List<Fine> fines = new ArrayList<>();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, plateNumber);
             ResultSet rs = pstmt.executeQuery();
 
@@ -132,7 +159,8 @@ public class FineDAO {
 
         List<Fine> fines = new ArrayList<>();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, plateNumber);
             ResultSet rs = pstmt.executeQuery();
 
@@ -148,26 +176,114 @@ public class FineDAO {
     }
 
     public List<Fine> getAllUnpaidFines() {
+        List<Fine> fines = new ArrayList<>();
+        forEachUnpaidFine(Constants.DB_FETCH_SIZE, fines::add);
+        return fines;
+    }
+
+    /**
+     * Visits unpaid fines one at a time, newest first, without holding them
+     * all in memory.
+     *
+     * @return false if the query failed
+     */
+    public boolean forEachUnpaidFine(int fetchSize, Consumer<? super Fine> visitor) {
         String sql = """
                     SELECT * FROM fines
                     WHERE is_paid = 0
-                    ORDER BY created_at DESC;
+                    ORDER BY created_at DESC, fine_id DESC;
+                """;
+
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultCursor.forEach(pstmt, fetchSize, this::extractFineFromResultSet, visitor);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Failed to get all unpaid fines");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * One page of unpaid fines, newest first, keyed on a row already seen so
+     * deep pages cost the same as the first.
+     *
+     * @param afterCreatedAt creation time of the row to continue after, or
+     *                       null to start from the newest fine
+     * @param afterFineId    ID of the row to continue after
+     * @param skip           rows to skip after it first, 0 unless jumping ahead
+     * @return the page, or null if it could not be read
+     */
+    public List<Fine> getUnpaidFinesPage(LocalDateTime afterCreatedAt, int afterFineId, int skip, int limit) {
+        String firstPageSql = """
+                    SELECT * FROM fines
+                    WHERE is_paid = 0
+                    ORDER BY created_at DESC, fine_id DESC
+                    LIMIT ? OFFSET ?;
+                """;
+        String nextPageSql = """
+                    SELECT * FROM fines
+                    WHERE is_paid = 0 AND (created_at, fine_id) < (?, ?)
+                    ORDER BY created_at DESC, fine_id DESC
+                    LIMIT ? OFFSET ?;
                 """;
 
         List<Fine> fines = new ArrayList<>();
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(afterCreatedAt == null ? firstPageSql : nextPageSql)) {
+            int index = 1;
+            if (afterCreatedAt != null) {
+                pstmt.setString(index++, TimeUtil.formatForDatabase(afterCreatedAt));
+                pstmt.setInt(index++, afterFineId);
+            }
+            pstmt.setInt(index++, limit);
+            pstmt.setInt(index, skip);
+            ResultCursor.forEach(pstmt, limit, this::extractFineFromResultSet, fines::add);
+        } catch (SQLException e) {
+            System.err.println("Failed to get page of unpaid fines");
+            e.printStackTrace();
+            return null;
+        }
+
+        return fines;
+    }
+
+    public int getUnpaidFineCount() {
+        String sql = "SELECT COUNT(*) FROM fines WHERE is_paid = 0;";
+
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
-            while (rs.next()) {
-                fines.add(extractFineFromResultSet(rs));
+            if (rs.next()) {
+                return rs.getInt(1);
             }
         } catch (SQLException e) {
-            System.err.println("Failed to get all unpaid fines");
+            System.err.println("Failed to get unpaid fine count");
             e.printStackTrace();
         }
 
-        return fines;
+        return 0;
+    }
+
+    public double getTotalUnpaidFineAmount() {
+        String sql = "SELECT SUM(fine_amount) FROM fines WHERE is_paid = 0;";
+
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to get total unpaid fine amount");
+            e.printStackTrace();
+        }
+
+        return 0.0;
     }
 
     public boolean markFinesPaid(List<Integer> fineIds) {
@@ -179,7 +295,8 @@ public class FineDAO {
         String placeholders = String.join(",", "?".repeat(fineIds.size()).split(""));
         String sql = "UPDATE fines SET is_paid = 1 WHERE fine_id IN (" + placeholders + ");";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             for (int i = 0; i < fineIds.size(); i++) {
                 pstmt.setInt(i + 1, fineIds.get(i));
             }
@@ -196,7 +313,8 @@ public class FineDAO {
     public boolean markAllFinesPaidForPlate(String plateNumber) {
         String sql = "UPDATE fines SET is_paid = 1 WHERE plate_number = ? AND is_paid = 0;";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, plateNumber);
             pstmt.executeUpdate();
             return true;
@@ -217,7 +335,8 @@ public class FineDAO {
     public double getTotalFineRevenue() {
         String sql = "SELECT SUM(fine_amount) FROM fines WHERE is_paid = 1;";
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
             if (rs.next()) {
@@ -2,30 +2,44 @@ package parkinglotmanagementsystem.fineandpayment.dao;
 
 import parkinglotmanagementsystem.fineandpayment.model.Payment;
 import parkinglotmanagementsystem.fineandpayment.model.PaymentMethod;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueBucket;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueGranularity;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueTotals;
 import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.ResultCursor;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.TimeUtil;
+import parkinglotmanagementsystem.parking.model.SpotType;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class PaymentDAO {
 
-    private Connection connection;
+    // fixed width so bucket keys sort by time; matches the strftime
+    // patterns used to seed revenue_rollups
+    private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    private DatabaseManager dbManager;
 
     public PaymentDAO() {
-        this.connection = DatabaseManager.getInstance().getConnection();
+        this.dbManager = DatabaseManager.getInstance();
     }
 
     public boolean insertPayment(Payment payment) {
         String sql = """
                     INSERT INTO payments
                     (ticket_id, parking_fee, fine_amount, total_amount, payment_method, payment_time)
-                    VALUES (?, ?, ?, ?, ?, ?);
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    RETURNING payment_id;
                 """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, payment.getTicketId());
             pstmt.setDouble(2, payment.getParkingFee());
             pstmt.setDouble(3, payment.getFineAmount());
@@ -33,13 +47,16 @@ public class PaymentDAO {
             pstmt.setString(5, payment.getPaymentMethod().name());
             pstmt.setString(6, TimeUtil.formatForDatabase(payment.getPaymentTime()));
 
-            pstmt.executeUpdate();
-
-            // Get generated payment ID
-            ResultSet rs = pstmt.getGeneratedKeys();
-            if (rs.next()) {
-                payment.setPaymentId(rs.getInt(1));
+            // the driver's generated keys come back empty for this statement
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                System.err.println("Payment insert returned no ID for ticket: " + payment.getTicketId());
+                return false;
             }
+            payment.setPaymentId(rs.getInt("payment_id"));
+
+            addToRevenueTotals(conn, payment);
+            addToRevenueRollups(conn, payment);
 
             return true;
         } catch (SQLException e) {
@@ -49,10 +66,86 @@ public class PaymentDAO {
         }
     }
 
+    /**
+     * Adds the payment to the running totals. Callers run this together with
+     * the payment insert in one transaction so the two never disagree.
+     */
+    private void addToRevenueTotals(Connection conn, Payment payment) throws SQLException {
+        String sql = """
+                    UPDATE revenue_totals
+                    SET parking_total = parking_total + ?,
+                        fine_total = fine_total + ?,
+                        total = total + ?,
+                        payment_count = payment_count + 1
+                    WHERE id = 1;
+                """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDouble(1, payment.getParkingFee());
+            pstmt.setDouble(2, payment.getFineAmount());
+            pstmt.setDouble(3, payment.getTotalAmount());
+
+            if (pstmt.executeUpdate() != 1) {
+                throw new SQLException("Revenue totals row is missing");
+            }
+        }
+    }
+
+    /**
+     * Adds the payment to its hourly, daily and monthly rollup buckets,
+     * keyed by payment method and the type of the spot the ticket used.
+     * Runs in the payment insert's transaction like addToRevenueTotals.
+     */
+    private void addToRevenueRollups(Connection conn, Payment payment) throws SQLException {
+        String spotTypeSql = """
+                    SELECT s.spot_type
+                    FROM tickets t
+                    JOIN parking_spots s ON s.spot_id = t.spot_id
+                    WHERE t.ticket_id = ?;
+                """;
+
+        String spotType;
+        try (PreparedStatement pstmt = conn.prepareStatement(spotTypeSql)) {
+            pstmt.setString(1, payment.getTicketId());
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("No spot found for ticket: " + payment.getTicketId());
+            }
+            spotType = rs.getString("spot_type");
+        }
+
+        String sql = """
+                    INSERT INTO revenue_rollups
+                    (granularity, bucket_start, payment_method, spot_type,
+                     parking_total, fine_total, total, payment_count)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, 1)
+                    ON CONFLICT(granularity, bucket_start, payment_method, spot_type) DO UPDATE SET
+                        parking_total = parking_total + excluded.parking_total,
+                        fine_total = fine_total + excluded.fine_total,
+                        total = total + excluded.total,
+                        payment_count = payment_count + 1;
+                """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (RevenueGranularity granularity : RevenueGranularity.values()) {
+                pstmt.setString(1, granularity.name());
+                pstmt.setString(2, formatBucket(granularity.bucketStart(payment.getPaymentTime())));
+                pstmt.setString(3, payment.getPaymentMethod().name());
+                pstmt.setString(4, spotType);
+                pstmt.setDouble(5, payment.getParkingFee());
+                pstmt.setDouble(6, payment.getFineAmount());
+                pstmt.setDouble(7, payment.getTotalAmount());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
     public Payment getPaymentByTicket(String ticketId) {
         String sql = "SELECT * FROM payments WHERE ticket_id = ?;";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, ticketId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -68,90 +161,160 @@ public class PaymentDAO {
     }
 
     public List<Payment> getAllPayments() {
-        String sql = "SELECT * FROM payments ORDER BY payment_time DESC;";
-
         List<Payment> payments = new ArrayList<>();
+        forEachPayment(Constants.DB_FETCH_SIZE, payments::add);
+        return payments;
+    }
 
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Visits every payment one at a time, newest first, without holding them
+     * all in memory.
+     *
+     * @return false if the query failed
+     */
+    public boolean forEachPayment(int fetchSize, Consumer<? super Payment> visitor) {
+        String sql = "SELECT * FROM payments ORDER BY payment_time DESC;";
 
-            while (rs.next()) {
-                payments.add(extractPaymentFromResultSet(rs));
-            }
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultCursor.forEach(pstmt, fetchSize, this::extractPaymentFromResultSet, visitor);
+            return true;
         } catch (SQLException e) {
             System.err.println("Failed to get all payments");
             e.printStackTrace();
+            return false;
         }
-
-        return payments;
     }
 
-    public double getTotalParkingRevenue() {
-        String sql = "SELECT SUM(parking_fee) FROM payments;";
+    /**
+     * Reads the running totals kept in revenue_totals, a single-row lookup
+     * however many payments there are.
+     *
+     * @return the totals, or null if they could not be read
+     */
+    public RevenueTotals getRevenueTotals() {
+        String sql = """
+                    SELECT parking_total, fine_total, total, payment_count
+                    FROM revenue_totals
+                    WHERE id = 1;
+                """;
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
             if (rs.next()) {
-                return rs.getDouble(1);
+                return new RevenueTotals(
+                        rs.getDouble("parking_total"),
+                        rs.getDouble("fine_total"),
+                        rs.getDouble("total"),
+                        rs.getInt("payment_count"));
             }
+            System.err.println("Revenue totals row is missing");
         } catch (SQLException e) {
-            System.err.println("Failed to get total parking revenue");
+            System.err.println("Failed to get revenue totals");
             e.printStackTrace();
         }
 
-        return 0.0;
+        return null;
     }
 
-    public double getTotalFineRevenueFromPayments() {
-        String sql = "SELECT SUM(fine_amount) FROM payments;";
+    /**
+     * Revenue per bucket for buckets starting from the bucket containing
+     * from up to (excluding) to, summed over payment methods and spot types.
+     * Reads the rollup table only; empty buckets are not returned.
+     */
+    public List<RevenueBucket> getRevenueByBucket(RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        String sql = """
+                    SELECT bucket_start,
+                           SUM(parking_total) AS parking_total,
+                           SUM(fine_total) AS fine_total,
+                           SUM(total) AS total,
+                           SUM(payment_count) AS payment_count
+                    FROM revenue_rollups
+                    WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?
+                    GROUP BY bucket_start
+                    ORDER BY bucket_start;
+                """;
 
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+        List<RevenueBucket> buckets = new ArrayList<>();
 
-            if (rs.next()) {
-                return rs.getDouble(1);
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setBucketRange(pstmt, granularity, from, to);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                buckets.add(new RevenueBucket(
+                        granularity,
+                        parseBucket(rs.getString("bucket_start")),
+                        null,
+                        null,
+                        rs.getDouble("parking_total"),
+                        rs.getDouble("fine_total"),
+                        rs.getDouble("total"),
+                        rs.getInt("payment_count")));
             }
         } catch (SQLException e) {
-            System.err.println("Failed to get total fine revenue from payments");
+            System.err.println("Failed to get " + granularity + " revenue by bucket");
             e.printStackTrace();
         }
 
-        return 0.0;
+        return buckets;
     }
 
-    public double getTotalRevenue() {
-        String sql = "SELECT SUM(total_amount) FROM payments;";
+    /**
+     * Same range as getRevenueByBucket, one entry per bucket, payment method
+     * and spot type.
+     */
+    public List<RevenueBucket> getRevenueBreakdown(RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        String sql = """
+                    SELECT * FROM revenue_rollups
+                    WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?
+                    ORDER BY bucket_start, payment_method, spot_type;
+                """;
 
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+        List<RevenueBucket> buckets = new ArrayList<>();
 
-            if (rs.next()) {
-                return rs.getDouble(1);
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setBucketRange(pstmt, granularity, from, to);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                buckets.add(new RevenueBucket(
+                        granularity,
+                        parseBucket(rs.getString("bucket_start")),
+                        PaymentMethod.valueOf(rs.getString("payment_method")),
+                        SpotType.valueOf(rs.getString("spot_type")),
+                        rs.getDouble("parking_total"),
+                        rs.getDouble("fine_total"),
+                        rs.getDouble("total"),
+                        rs.getInt("payment_count")));
             }
         } catch (SQLException e) {
-            System.err.println("Failed to get total revenue");
+            System.err.println("Failed to get " + granularity + " revenue breakdown");
             e.printStackTrace();
         }
 
-        return 0.0;
+        return buckets;
     }
 
-    public int getTotalPaymentCount() {
-        String sql = "SELECT COUNT(*) FROM payments;";
-
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    private void setBucketRange(PreparedStatement pstmt, RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) throws SQLException {
+        pstmt.setString(1, granularity.name());
+        pstmt.setString(2, formatBucket(granularity.bucketStart(from)));
+        pstmt.setString(3, formatBucket(to));
+    }
 
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) {
-            System.err.println("Failed to get payment count");
-            e.printStackTrace();
-        }
+    private static String formatBucket(LocalDateTime bucketStart) {
+        return bucketStart.format(BUCKET_FORMATTER);
+    }
 
-        return 0;
+    private static LocalDateTime parseBucket(String bucketStart) {
+        return LocalDateTime.parse(bucketStart, BUCKET_FORMATTER);
     }
 
     private Payment extractPaymentFromResultSet(ResultSet rs) throws SQLException {
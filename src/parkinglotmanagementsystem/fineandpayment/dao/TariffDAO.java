@@ -0,0 +1,147 @@
+package parkinglotmanagementsystem.fineandpayment.dao;
+
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.util.TimeUtil;
+import parkinglotmanagementsystem.parking.model.SpotType;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class TariffDAO {
+
+    private static final String TARIFF_COLUMNS = """
+                overstay_threshold_hours, fixed_fine, hourly_fine_rate,
+                progressive_tier_1, progressive_tier_2, progressive_tier_3, progressive_tier_4,
+                compact_rate, regular_rate, handicapped_rate, reserved_rate,
+                handicapped_vehicle_rate, created_at""";
+
+    private DatabaseManager dbManager;
+
+    public TariffDAO() {
+        this.dbManager = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Saves the draft as a new version.
+     *
+     * @return the saved tariff with its version, or null if it could not be saved
+     */
+    public Tariff insertTariff(Tariff draft) {
+        String sql = """
+                    INSERT INTO tariffs (%s)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    RETURNING tariff_version;
+                """.formatted(TARIFF_COLUMNS);
+
+        LocalDateTime createdAt = TimeUtil.now();
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindTariff(pstmt, 1, draft, createdAt);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return draft.withVersion(rs.getInt(1), createdAt);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to insert tariff");
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Saves the tariff under its own version unless that version exists.
+     */
+    public boolean insertTariffIfMissing(Tariff tariff) {
+        String sql = """
+                    INSERT INTO tariffs (tariff_version, %s)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    ON CONFLICT(tariff_version) DO NOTHING;
+                """.formatted(TARIFF_COLUMNS);
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, tariff.getVersion());
+            bindTariff(pstmt, 2, tariff, TimeUtil.now());
+
+            pstmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Failed to insert tariff version " + tariff.getVersion());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Every saved version, oldest first. There are only a handful.
+     */
+    public List<Tariff> getAllTariffs() {
+        List<Tariff> tariffs = new ArrayList<>();
+        String sql = "SELECT * FROM tariffs ORDER BY tariff_version;";
+
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                tariffs.add(extractTariffFromResultSet(rs));
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Failed to get tariffs");
+            e.printStackTrace();
+        }
+
+        return tariffs;
+    }
+
+    private void bindTariff(PreparedStatement pstmt, int index, Tariff tariff, LocalDateTime createdAt)
+            throws SQLException {
+        double[] tiers = tariff.getProgressiveTiers();
+
+        pstmt.setLong(index++, tariff.getOverstayThresholdHours());
+        pstmt.setDouble(index++, tariff.getFixedFineAmount());
+        pstmt.setDouble(index++, tariff.getHourlyFineRate());
+        for (double tier : tiers) {
+            pstmt.setDouble(index++, tier);
+        }
+        pstmt.setDouble(index++, tariff.getHourlyRate(SpotType.COMPACT));
+        pstmt.setDouble(index++, tariff.getHourlyRate(SpotType.REGULAR));
+        pstmt.setDouble(index++, tariff.getHourlyRate(SpotType.HANDICAPPED));
+        pstmt.setDouble(index++, tariff.getHourlyRate(SpotType.RESERVED));
+        pstmt.setDouble(index++, tariff.getHandicappedVehicleRate());
+        pstmt.setString(index, TimeUtil.formatForDatabase(createdAt));
+    }
+
+    private Tariff extractTariffFromResultSet(ResultSet rs) throws SQLException {
+        int version = rs.getInt("tariff_version");
+        long overstayThresholdHours = rs.getLong("overstay_threshold_hours");
+        double fixedFine = rs.getDouble("fixed_fine");
+        double hourlyFineRate = rs.getDouble("hourly_fine_rate");
+
+        double[] tiers = new double[Tariff.PROGRESSIVE_TIER_COUNT];
+        for (int i = 0; i < tiers.length; i++) {
+            tiers[i] = rs.getDouble("progressive_tier_" + (i + 1));
+        }
+
+        Map<SpotType, Double> hourlyRates = new EnumMap<>(SpotType.class);
+        hourlyRates.put(SpotType.COMPACT, rs.getDouble("compact_rate"));
+        hourlyRates.put(SpotType.REGULAR, rs.getDouble("regular_rate"));
+        hourlyRates.put(SpotType.HANDICAPPED, rs.getDouble("handicapped_rate"));
+        hourlyRates.put(SpotType.RESERVED, rs.getDouble("reserved_rate"));
+
+        double handicappedVehicleRate = rs.getDouble("handicapped_vehicle_rate");
+        LocalDateTime createdAt = TimeUtil.parseFromDatabase(rs.getString("created_at"));
+
+        return new Tariff(version, overstayThresholdHours, fixedFine, hourlyFineRate, tiers, hourlyRates,
+                handicappedVehicleRate, createdAt);
+    }
+}
@@ -0,0 +1,147 @@
+package parkinglotmanagementsystem.fineandpayment.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import parkinglotmanagementsystem.parking.model.ParkingSpot;
+import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
+import parkinglotmanagementsystem.vehicleandticket.model.Vehicle;
+
+/**
+ * The bill of one parking session, calculated once when the exit is quoted
+ * and then used for the payment and the receipt. Amounts and the vehicle
+ * balance are fixed at calculation time. The new fines are only a quote
+ * until the exit saves them.
+ */
+public class Bill {
+
+    private final Ticket ticket;
+    private final Vehicle vehicle;
+    private final ParkingSpot spot;
+    private final LocalDateTime exitTime;
+    private final long hoursParked;
+    private final double hourlyRate;
+    private final double parkingFee;
+    private final List<Fine> newFines;
+    private final double newFineAmount;
+    private final List<Fine> previousFines;
+    private final List<Fine> unpaidFines;
+    private final double totalFineAmount;
+    private final double balance;
+
+    public Bill(Ticket ticket, Vehicle vehicle, ParkingSpot spot, LocalDateTime exitTime,
+            long hoursParked, double hourlyRate, double parkingFee,
+            List<Fine> newFines, List<Fine> previousFines) {
+        this.ticket = ticket;
+        this.vehicle = vehicle;
+        this.spot = spot;
+        this.exitTime = exitTime;
+        this.hoursParked = hoursParked;
+        this.hourlyRate = hourlyRate;
+        this.parkingFee = parkingFee;
+        this.newFines = Collections.unmodifiableList(newFines);
+        this.newFineAmount = sumFines(newFines);
+        this.previousFines = Collections.unmodifiableList(previousFines);
+        List<Fine> allFines = new ArrayList<>(previousFines);
+        allFines.addAll(newFines);
+        this.unpaidFines = Collections.unmodifiableList(allFines);
+        this.totalFineAmount = sumFines(unpaidFines);
+        this.balance = vehicle.getBalance();
+    }
+
+    private static double sumFines(List<Fine> fines) {
+        double total = 0.0;
+        for (Fine fine : fines) {
+            total += fine.getFineAmount();
+        }
+        return total;
+    }
+
+    // Getters
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public ParkingSpot getSpot() {
+        return spot;
+    }
+
+    public String getPlateNumber() {
+        return ticket.getPlateNumber();
+    }
+
+    public LocalDateTime getEntryTime() {
+        return ticket.getEntryTime();
+    }
+
+    public LocalDateTime getExitTime() {
+        return exitTime;
+    }
+
+    public long getHoursParked() {
+        return hoursParked;
+    }
+
+    public double getHourlyRate() {
+        return hourlyRate;
+    }
+
+    public double getParkingFee() {
+        return parkingFee;
+    }
+
+    public List<Fine> getNewFines() {
+        return newFines;
+    }
+
+    public double getNewFineAmount() {
+        return newFineAmount;
+    }
+
+    /**
+     * Unpaid fines the vehicle already had, oldest first.
+     */
+    public List<Fine> getPreviousFines() {
+        return previousFines;
+    }
+
+    /**
+     * Every unpaid fine of the vehicle, the previous ones first, then the
+     * new ones.
+     */
+    public List<Fine> getUnpaidFines() {
+        return unpaidFines;
+    }
+
+    public double getTotalFineAmount() {
+        return totalFineAmount;
+    }
+
+    public double getTotalDue() {
+        return parkingFee + totalFineAmount;
+    }
+
+    /**
+     * The vehicle balance when the bill was calculated, negative if owing.
+     */
+    public double getBalance() {
+        return balance;
+    }
+
+    public FineScheme getFineScheme() {
+        return ticket.getFineScheme();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bill[ticket=%s, hours=%d, parking=RM%.2f, fines=RM%.2f, total=RM%.2f]",
+                ticket.getTicketId(), hoursParked, parkingFee, totalFineAmount, getTotalDue());
+    }
+}
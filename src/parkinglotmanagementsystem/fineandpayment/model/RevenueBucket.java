@@ -0,0 +1,78 @@
+package parkinglotmanagementsystem.fineandpayment.model;
+
+import parkinglotmanagementsystem.parking.model.SpotType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Revenue taken within one time bucket. Payment method and spot type are
+ * null when the bucket covers all of them.
+ */
+public class RevenueBucket {
+
+    private final RevenueGranularity granularity;
+    private final LocalDateTime bucketStart;
+    private final PaymentMethod paymentMethod;
+    private final SpotType spotType;
+    private final double parkingRevenue;
+    private final double fineRevenue;
+    private final double totalRevenue;
+    private final int paymentCount;
+
+    public RevenueBucket(RevenueGranularity granularity, LocalDateTime bucketStart,
+            PaymentMethod paymentMethod, SpotType spotType,
+            double parkingRevenue, double fineRevenue, double totalRevenue, int paymentCount) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.paymentMethod = paymentMethod;
+        this.spotType = spotType;
+        this.parkingRevenue = parkingRevenue;
+        this.fineRevenue = fineRevenue;
+        this.totalRevenue = totalRevenue;
+        this.paymentCount = paymentCount;
+    }
+
+    // Getters
+
+    public RevenueGranularity getGranularity() {
+        return granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public LocalDateTime getBucketEnd() {
+        return granularity.nextBucket(bucketStart);
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public SpotType getSpotType() {
+        return spotType;
+    }
+
+    public double getParkingRevenue() {
+        return parkingRevenue;
+    }
+
+    public double getFineRevenue() {
+        return fineRevenue;
+    }
+
+    public double getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public int getPaymentCount() {
+        return paymentCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RevenueBucket[%s %s, method=%s, spot=%s, total=RM%.2f, payments=%d]",
+                granularity, bucketStart, paymentMethod, spotType, totalRevenue, paymentCount);
+    }
+}
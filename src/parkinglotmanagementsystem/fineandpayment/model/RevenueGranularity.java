@@ -0,0 +1,41 @@
+package parkinglotmanagementsystem.fineandpayment.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Size of the time buckets revenue is rolled up into.
+ */
+public enum RevenueGranularity {
+    HOUR, // bucket starts on the hour
+    DAY, // bucket starts at midnight
+    MONTH; // bucket starts at midnight on the 1st
+
+    /**
+     * Start of the bucket containing the given time.
+     */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        switch (this) {
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            default:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        }
+    }
+
+    /**
+     * Start of the bucket after the one starting at bucketStart.
+     */
+    public LocalDateTime nextBucket(LocalDateTime bucketStart) {
+        switch (this) {
+            case HOUR:
+                return bucketStart.plusHours(1);
+            case DAY:
+                return bucketStart.plusDays(1);
+            default:
+                return bucketStart.plusMonths(1);
+        }
+    }
+}
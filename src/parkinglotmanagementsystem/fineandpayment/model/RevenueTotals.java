@@ -0,0 +1,61 @@
+package parkinglotmanagementsystem.fineandpayment.model;
+
+/**
+ * Running totals over every payment taken. Immutable, so a reference to one
+ * is always a consistent set of figures.
+ */
+public class RevenueTotals {
+
+    public static final RevenueTotals EMPTY = new RevenueTotals(0.0, 0.0, 0.0, 0);
+
+    private final double parkingRevenue;
+    private final double fineRevenue;
+    private final double totalRevenue;
+    private final int paymentCount;
+
+    public RevenueTotals(double parkingRevenue, double fineRevenue, double totalRevenue, int paymentCount) {
+        this.parkingRevenue = parkingRevenue;
+        this.fineRevenue = fineRevenue;
+        this.totalRevenue = totalRevenue;
+        this.paymentCount = paymentCount;
+    }
+
+    /**
+     * Totals with the payment added.
+     */
+    public RevenueTotals add(Payment payment) {
+        return new RevenueTotals(
+                parkingRevenue + payment.getParkingFee(),
+                fineRevenue + payment.getFineAmount(),
+                totalRevenue + payment.getTotalAmount(),
+                paymentCount + 1);
+    }
+
+    // Getters
+
+    public double getParkingRevenue() {
+        return parkingRevenue;
+    }
+
+    public double getFineRevenue() {
+        return fineRevenue;
+    }
+
+    public double getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public int getPaymentCount() {
+        return paymentCount;
+    }
+
+    public double getAverageTransaction() {
+        return paymentCount > 0 ? totalRevenue / paymentCount : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RevenueTotals[total=RM%.2f, parking=RM%.2f, fines=RM%.2f, payments=%d]",
+                totalRevenue, parkingRevenue, fineRevenue, paymentCount);
+    }
+}
@@ -0,0 +1,142 @@
+package parkinglotmanagementsystem.fineandpayment.model;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import parkinglotmanagementsystem.main.util.Constants;
+import parkinglotmanagementsystem.parking.model.SpotType;
+
+/**
+ * One version of the parking rates and fine amounts. Versions are never
+ * changed once saved: a new tariff is published as a new version, and each
+ * ticket keeps the version that was active when it entered.
+ */
+public class Tariff {
+
+    public static final int PROGRESSIVE_TIER_COUNT = 4;
+
+    private final int version;
+    private final long overstayThresholdHours;
+    private final double fixedFineAmount;
+    private final double hourlyFineRate;
+    private final double[] progressiveTiers;
+    private final Map<SpotType, Double> hourlyRates;
+    private final double handicappedVehicleRate;
+    private final LocalDateTime createdAt;
+
+    /**
+     * @param version          0 for a draft that has not been saved yet
+     * @param progressiveTiers cumulative fine for each progressive tier
+     * @param hourlyRates      parking rate of every spot type
+     * @throws IllegalArgumentException if a value is missing or negative
+     */
+    public Tariff(int version, long overstayThresholdHours, double fixedFineAmount, double hourlyFineRate,
+            double[] progressiveTiers, Map<SpotType, Double> hourlyRates, double handicappedVehicleRate,
+            LocalDateTime createdAt) {
+        if (overstayThresholdHours < 0 || fixedFineAmount < 0 || hourlyFineRate < 0 || handicappedVehicleRate < 0) {
+            throw new IllegalArgumentException("Tariff amounts must not be negative");
+        }
+        if (progressiveTiers.length != PROGRESSIVE_TIER_COUNT) {
+            throw new IllegalArgumentException("Tariff needs " + PROGRESSIVE_TIER_COUNT + " progressive tiers");
+        }
+        for (double tier : progressiveTiers) {
+            if (tier < 0) {
+                throw new IllegalArgumentException("Tariff amounts must not be negative");
+            }
+        }
+        for (SpotType spotType : SpotType.values()) {
+            Double rate = hourlyRates.get(spotType);
+            if (rate == null || rate < 0) {
+                throw new IllegalArgumentException("Tariff has no valid hourly rate for " + spotType);
+            }
+        }
+
+        this.version = version;
+        this.overstayThresholdHours = overstayThresholdHours;
+        this.fixedFineAmount = fixedFineAmount;
+        this.hourlyFineRate = hourlyFineRate;
+        this.progressiveTiers = progressiveTiers.clone();
+        this.hourlyRates = Collections.unmodifiableMap(new EnumMap<>(hourlyRates));
+        this.handicappedVehicleRate = handicappedVehicleRate;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * The rates and fines the system shipped with, saved as version 1.
+     */
+    public static Tariff defaults() {
+        Map<SpotType, Double> hourlyRates = new EnumMap<>(SpotType.class);
+        for (SpotType spotType : SpotType.values()) {
+            hourlyRates.put(spotType, spotType.getHourlyRate());
+        }
+
+        double[] progressiveTiers = {
+                Constants.PROGRESSIVE_TIER_1,
+                Constants.PROGRESSIVE_TIER_2,
+                Constants.PROGRESSIVE_TIER_3,
+                Constants.PROGRESSIVE_TIER_4 };
+
+        return new Tariff(Constants.DEFAULT_TARIFF_VERSION, Constants.OVERSTAY_THRESHOLD_HOURS,
+                Constants.FIXED_FINE_AMOUNT, Constants.HOURLY_FINE_RATE, progressiveTiers, hourlyRates,
+                Constants.HANDICAPPED_VEHICLE_RATE, null);
+    }
+
+    /**
+     * A copy of this tariff saved under the given version.
+     */
+    public Tariff withVersion(int version, LocalDateTime createdAt) {
+        return new Tariff(version, overstayThresholdHours, fixedFineAmount, hourlyFineRate,
+                progressiveTiers, hourlyRates, handicappedVehicleRate, createdAt);
+    }
+
+    // Getters
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getOverstayThresholdHours() {
+        return overstayThresholdHours;
+    }
+
+    public double getFixedFineAmount() {
+        return fixedFineAmount;
+    }
+
+    public double getHourlyFineRate() {
+        return hourlyFineRate;
+    }
+
+    public double[] getProgressiveTiers() {
+        return progressiveTiers.clone();
+    }
+
+    public double getHourlyRate(SpotType spotType) {
+        return hourlyRates.get(spotType);
+    }
+
+    public Map<SpotType, Double> getHourlyRates() {
+        return hourlyRates;
+    }
+
+    /**
+     * Hourly rate of a handicapped vehicle outside a handicapped spot.
+     */
+    public double getHandicappedVehicleRate() {
+        return handicappedVehicleRate;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tariff[v%d, overstay>%dh, fixed=RM%.2f, hourly=RM%.2f, tiers=%s, rates=%s]",
+                version, overstayThresholdHours, fixedFineAmount, hourlyFineRate,
+                Arrays.toString(progressiveTiers), hourlyRates);
+    }
+}
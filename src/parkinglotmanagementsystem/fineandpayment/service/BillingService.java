@@ -1,92 +1,102 @@
 package parkinglotmanagementsystem.fineandpayment.service;
 
+import parkinglotmanagementsystem.fineandpayment.model.Bill;
 import parkinglotmanagementsystem.fineandpayment.model.Fine;
+import parkinglotmanagementsystem.fineandpayment.strategy.CompiledTariff;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 import parkinglotmanagementsystem.vehicleandticket.model.Vehicle;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class BillingService {
 
     private FineManager fineManager;
+    private TariffRegistry tariffRegistry;
 
     public BillingService(FineManager fineManager) {
         this.fineManager = fineManager;
+        this.tariffRegistry = TariffRegistry.getInstance();
     }
 
-    private double calculateParkingFee(Vehicle vehicle, ParkingSpot spot, long hoursParked) {
-        if (vehicle == null || spot == null) {
-            return 0.0;
+    /**
+     * Quotes the bill for ending the session at exitTime. Only reads: the
+     * new fines are computed in memory and saved by the exit itself.
+     * Rates come from the tariff the ticket locked at entry.
+     *
+     * @throws IllegalStateException if the ticket's tariff version is unknown
+     */
+    public Bill generateBill(Ticket ticket, Vehicle vehicle,
+            ParkingSpot spot, LocalDateTime exitTime) {
+        CompiledTariff tariff = tariffRegistry.get(ticket.getTariffVersion());
+        if (tariff == null) {
+            throw new IllegalStateException("Unknown tariff version " + ticket.getTariffVersion()
+                    + " for ticket: " + ticket.getTicketId());
         }
 
+        // Calculate duration
+        long hoursParked = TimeUtil.calculateDurationHours(ticket.getEntryTime(), exitTime);
+
         // Get hourly rate based on vehicle type and spot type
-        double hourlyRate = vehicle.getParkingRate(spot);
+        double hourlyRate = vehicle.getParkingRate(spot, tariff.getTariff());
 
-        // Calculate total fee
-        return hoursParked * hourlyRate;
-    }
+        // Calculate parking fee
+        double parkingFee = hoursParked * hourlyRate;
 
-    public Map<String, Object> generateBill(Ticket ticket, Vehicle vehicle,
-            ParkingSpot spot, LocalDateTime exitTime) {
-        Map<String, Object> bill = new HashMap<>();
+        List<Fine> newFines = fineManager.quoteFines(ticket, spot, hoursParked, exitTime);
 
-        // Calculate duration
-        long hoursParked = TimeUtil.calculateDurationHours(ticket.getEntryTime(), exitTime);
+        // Get existing unpaid fines; a fine this ticket already has is
+        // replaced by its new quote
+        List<Fine> previousFines = new ArrayList<>();
+        for (Fine fine : fineManager.getUnpaidFines(ticket.getPlateNumber())) {
+            if (!isRequoted(fine, newFines)) {
+                previousFines.add(fine);
+            }
+        }
 
-        // Calculate parking fee
-        double parkingFee = calculateParkingFee(vehicle, spot, hoursParked);
-
-        List<Fine> newFines = fineManager.detectAndGenerateFines(ticket, spot, hoursParked);
-        double newFineAmount = newFines.stream()
-                .mapToDouble(Fine::getFineAmount)
-                .sum();
-
-        // Get existing unpaid fines
-        List<Fine> unpaidFines = fineManager.getUnpaidFines(ticket.getPlateNumber());
-        double totalFineAmount = unpaidFines.stream()
-                .mapToDouble(Fine::getFineAmount)
-                .sum();
-
-        // Calculate total
-        double totalDue = parkingFee + totalFineAmount;
-
-        // Populate bill details
-        bill.put("ticket", ticket);
-        bill.put("vehicle", vehicle);
-        bill.put("spot", spot);
-        bill.put("entryTime", ticket.getEntryTime());
-        bill.put("exitTime", exitTime);
-        bill.put("hoursParked", hoursParked);
-        bill.put("hourlyRate", vehicle.getParkingRate(spot));
-        bill.put("parkingFee", parkingFee);
-        bill.put("newFines", newFines);
-        bill.put("newFineAmount", newFineAmount);
-        bill.put("unpaidFines", unpaidFines);
-        bill.put("totalFineAmount", totalFineAmount);
-        bill.put("totalDue", totalDue);
-        bill.put("fineScheme", ticket.getFineScheme());
-
-        return bill;
+        return new Bill(ticket, vehicle, spot, exitTime, hoursParked, hourlyRate, parkingFee,
+                newFines, previousFines);
     }
 
-    public String formatBill(Map<String, Object> bill) {
-        if (bill.containsKey("error")) {
-            return "ERROR: " + bill.get("error");
+    private boolean isRequoted(Fine fine, List<Fine> newFines) {
+        for (Fine newFine : newFines) {
+            if (newFine.getTicketId().equals(fine.getTicketId()) && newFine.getFineType() == fine.getFineType()) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Saves the bill's new fines as part of the exit. A new fine matching
+     * one that was already paid is dropped, it is not payable again.
+     *
+     * @return every fine the exit may pay, previous ones first, or null if
+     *         the new fines could not be saved
+     */
+    public List<Fine> persistFines(Bill bill) {
+        List<Fine> savedFines = fineManager.persistFines(bill.getNewFines());
+        if (savedFines == null) {
+            return null;
+        }
+
+        List<Fine> payableFines = new ArrayList<>(bill.getPreviousFines());
+        payableFines.addAll(savedFines);
+        return payableFines;
+    }
 
+    public String formatBill(Bill bill) {
         StringBuilder sb = new StringBuilder();
         sb.append("=".repeat(50)).append("\n");
         sb.append("PARKING BILL\n");
         sb.append("=".repeat(50)).append("\n");
 
-        Ticket ticket = (Ticket) bill.get("ticket");
-        Vehicle vehicle = (Vehicle) bill.get("vehicle");
-        ParkingSpot spot = (ParkingSpot) bill.get("spot");
+        Ticket ticket = bill.getTicket();
+        Vehicle vehicle = bill.getVehicle();
+        ParkingSpot spot = bill.getSpot();
 
         sb.append(String.format("Ticket ID: %s%n", ticket.getTicketId()));
         sb.append(String.format("Plate Number: %s%n", vehicle.getPlateNumber()));
@@ -94,34 +104,30 @@ public class BillingService {
         sb.append(String.format("Spot: %s (%s)%n", spot.getSpotId(), spot.getSpotType()));
         sb.append("\n");
 
-        sb.append(String.format("Entry Time: %s%n",
-                TimeUtil.formatForDisplay((LocalDateTime) bill.get("entryTime"))));
-        sb.append(String.format("Exit Time: %s%n",
-                TimeUtil.formatForDisplay((LocalDateTime) bill.get("exitTime"))));
-        sb.append(String.format("Duration: %d hours%n", bill.get("hoursParked")));
+        sb.append(String.format("Entry Time: %s%n", TimeUtil.formatForDisplay(bill.getEntryTime())));
+        sb.append(String.format("Exit Time: %s%n", TimeUtil.formatForDisplay(bill.getExitTime())));
+        sb.append(String.format("Duration: %d hours%n", bill.getHoursParked()));
         sb.append("\n");
 
         sb.append("-".repeat(50)).append("\n");
-        sb.append(String.format("Hourly Rate: RM %.2f/hr%n", bill.get("hourlyRate")));
-        sb.append(String.format("Parking Fee: RM %.2f%n", bill.get("parkingFee")));
+        sb.append(String.format("Hourly Rate: RM %.2f/hr%n", bill.getHourlyRate()));
+        sb.append(String.format("Parking Fee: RM %.2f%n", bill.getParkingFee()));
         sb.append("\n");
 
         // New fines
-        @SuppressWarnings("unchecked")
-        List<Fine> newFines = (List<Fine>) bill.get("newFines");
+        List<Fine> newFines = bill.getNewFines();
         if (!newFines.isEmpty()) {
             sb.append("NEW FINES\n");
             for (Fine fine : newFines) {
                 sb.append(String.format("  - %s: RM %.2f (Scheme: %s)%n",
                         fine.getFineType(), fine.getFineAmount(), fine.getFineScheme()));
             }
-            sb.append(String.format("New Fine Total: RM %.2f%n", bill.get("newFineAmount")));
+            sb.append(String.format("New Fine Total: RM %.2f%n", bill.getNewFineAmount()));
             sb.append("\n");
         }
 
         // Existing unpaid fines
-        @SuppressWarnings("unchecked")
-        List<Fine> unpaidFines = (List<Fine>) bill.get("unpaidFines");
+        List<Fine> unpaidFines = bill.getUnpaidFines();
         if (!unpaidFines.isEmpty()) {
             sb.append("UNPAID FINES\n");
             for (Fine fine : unpaidFines) {
@@ -129,16 +135,16 @@ public class BillingService {
                         fine.getFineType(), fine.getFineAmount(),
                         TimeUtil.formatForDisplay(fine.getCreatedAt()), fine.getTicketId()));
             }
-            sb.append(String.format("Total Fine Amount: RM %.2f%n", bill.get("totalFineAmount")));
+            sb.append(String.format("Total Fine Amount: RM %.2f%n", bill.getTotalFineAmount()));
             sb.append("\n");
         }
 
         sb.append("-".repeat(50)).append("\n");
-        sb.append(String.format("TOTAL DUE: RM %.2f%n", bill.get("totalDue")));
+        sb.append(String.format("TOTAL DUE: RM %.2f%n", bill.getTotalDue()));
         sb.append("-".repeat(50)).append("\n");
-        sb.append(String.format("REMAINING BALANCE: RM %.2f%n", ((Vehicle) bill.get("vehicle")).getBalance()));
+        sb.append(String.format("REMAINING BALANCE: RM %.2f%n", bill.getBalance()));
         sb.append("-".repeat(50)).append("\n");
-        sb.append(String.format("Fine Scheme (This Session): %s%n", bill.get("fineScheme")));
+        sb.append(String.format("Fine Scheme (This Session): %s%n", bill.getFineScheme()));
         sb.append("=".repeat(50)).append("\n");
 
         return sb.toString();
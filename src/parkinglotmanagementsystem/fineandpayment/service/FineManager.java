@@ -5,87 +5,102 @@ import parkinglotmanagementsystem.fineandpayment.model.Fine;
 import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
 import parkinglotmanagementsystem.fineandpayment.model.FineType;
 import parkinglotmanagementsystem.fineandpayment.strategy.*;
-import parkinglotmanagementsystem.main.observer.ParkingEventListener;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.SystemConfigCache;
+import parkinglotmanagementsystem.main.observer.ParkingEventBus;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
-import parkinglotmanagementsystem.main.util.Constants;
-import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.parking.model.SpotType;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class FineManager {
 
     private FineDAO fineDAO;
-    private FineCalculationStrategy currentStrategy;
-    private Map<FineScheme, FineCalculationStrategy> strategies;
-    private List<ParkingEventListener> listeners;
+    private TariffRegistry tariffRegistry;
+    private volatile FineScheme currentScheme;
+    private ParkingEventBus eventBus;
 
     public FineManager() {
         this.fineDAO = new FineDAO();
-        this.listeners = new ArrayList<>();
-        initializeStrategies();
-    }
-
-    private void initializeStrategies() {
-        strategies = new HashMap<>();
-        strategies.put(FineScheme.FIXED, new FixedFineStrategy());
-        strategies.put(FineScheme.PROGRESSIVE, new ProgressiveFineStrategy());
-        strategies.put(FineScheme.HOURLY, new HourlyFineStrategy());
-
-        // Set default strategy
-        currentStrategy = strategies.get(FineScheme.FIXED);
+        this.tariffRegistry = TariffRegistry.getInstance();
+        this.eventBus = ParkingEventBus.getInstance();
+
+        // follow the configured scheme, also when it is changed later
+        SystemConfigCache configCache = SystemConfigCache.getInstance();
+        this.currentScheme = configCache.getCurrentFineScheme();
+        configCache.addListener((key, oldValue, newValue) -> {
+            if (SystemConfigCache.FINE_SCHEME.equals(key)) {
+                setFineStrategy(SystemConfigCache.parseFineScheme(newValue));
+            }
+        });
     }
 
     public void setFineStrategy(FineScheme scheme) {
-        FineCalculationStrategy strategy = strategies.get(scheme);
-        if (strategy != null) {
-            this.currentStrategy = strategy;
-            System.out.println("Fine strategy changed to: " + strategy);
+        if (scheme != null) {
+            this.currentScheme = scheme;
+            System.out.println("Fine strategy changed to: " + getCurrentStrategy());
         } else {
             System.err.println("Unknown fine scheme: " + scheme);
         }
     }
 
-    public void setFineStrategy(FineCalculationStrategy strategy) {
-        this.currentStrategy = strategy;
-    }
-
+    /**
+     * The current scheme's strategy under the active tariff.
+     */
     public FineCalculationStrategy getCurrentStrategy() {
-        return currentStrategy;
+        return tariffRegistry.getActive().getStrategy(currentScheme);
     }
 
-    public List<Fine> detectAndGenerateFines(Ticket ticket, ParkingSpot spot, long hoursParked) {
-        List<Fine> generatedFines = new ArrayList<>();
+    /**
+     * Fines the session would be given if it ended at the given time,
+     * computed in memory. Nothing is saved or announced, so quoting a bill
+     * is free of side effects; persistFines saves them when the exit
+     * commits.
+     */
+    public List<Fine> quoteFines(Ticket ticket, ParkingSpot spot, long hoursParked, LocalDateTime quotedAt) {
+        List<Fine> quotedFines = new ArrayList<>();
 
         // overstay
-        if (hoursParked > Constants.OVERSTAY_THRESHOLD_HOURS) {
-            Fine overstayFine = generateFine(ticket, FineType.OVERSTAY, hoursParked);
-            if (overstayFine != null) {
-                generatedFines.add(overstayFine);
-            }
+        Fine overstayFine = quoteOverstayFine(ticket, hoursParked, quotedAt);
+        if (overstayFine != null) {
+            quotedFines.add(overstayFine);
         }
 
         // reserved spot misuse
         if (spot.getSpotType() == SpotType.RESERVED) {
-            Fine overstayFine = generateFine(ticket, FineType.RESERVED_MISUSE, hoursParked);
-            if (overstayFine != null) {
-                generatedFines.add(overstayFine);
+            Fine misuseFine = quoteFine(ticket, FineType.RESERVED_MISUSE, hoursParked, quotedAt);
+            if (misuseFine != null) {
+                quotedFines.add(misuseFine);
             }
         }
 
-        return generatedFines;
+        return quotedFines;
     }
 
-    private Fine generateFine(Ticket ticket, FineType fineType, long hoursParked) {
-        // IMPORTANT: Use the fine scheme from the ticket (locked at entry)
-        // NOT the current system scheme
+    /**
+     * The OVERSTAY fine the session has earned after hoursParked, computed
+     * in memory with the ticket's locked scheme.
+     *
+     * @return the fine, or null if the session has not overstayed
+     */
+    public Fine quoteOverstayFine(Ticket ticket, long hoursParked, LocalDateTime quotedAt) {
+        CompiledTariff tariff = getTicketTariff(ticket);
+        if (tariff == null || hoursParked <= tariff.getTariff().getOverstayThresholdHours()) {
+            return null;
+        }
+        return quoteFine(ticket, FineType.OVERSTAY, hoursParked, quotedAt);
+    }
+
+    private Fine quoteFine(Ticket ticket, FineType fineType, long hoursParked, LocalDateTime quotedAt) {
+        // IMPORTANT: Use the fine scheme and tariff from the ticket (locked
+        // at entry), NOT the current system scheme and tariff
         FineScheme ticketScheme = ticket.getFineScheme();
-        FineCalculationStrategy strategy = strategies.get(ticketScheme);
+        CompiledTariff tariff = getTicketTariff(ticket);
+        FineCalculationStrategy strategy = tariff == null ? null : tariff.getStrategy(ticketScheme);
 
         if (strategy == null) {
             System.err.println("No strategy found for scheme: " + ticketScheme);
@@ -99,44 +114,57 @@ public class FineManager {
             return null; // No fine to generate
         }
 
-        Fine existingFine = fineDAO.getFineByTicketIdAndFineType(ticket.getTicketId(), fineType);
-
-        if (existingFine == null) {
-            // Create fine object
-            Fine fine = new Fine(
-                    ticket.getPlateNumber(),
-                    ticket.getTicketId(),
-                    fineType,
-                    fineAmount,
-                    ticketScheme,
-                    TimeUtil.now());
+        return new Fine(
+                ticket.getPlateNumber(),
+                ticket.getTicketId(),
+                fineType,
+                fineAmount,
+                ticketScheme,
+                quotedAt);
+    }
 
-            if (fineDAO.insertFine(fine)) {
-                System.out.println("Fine generated: " + fine);
+    private CompiledTariff getTicketTariff(Ticket ticket) {
+        CompiledTariff tariff = tariffRegistry.get(ticket.getTariffVersion());
+        if (tariff == null) {
+            System.err.println("No tariff version " + ticket.getTariffVersion() + " for ticket: " + ticket.getTicketId());
+        }
+        return tariff;
+    }
 
-                // Notify observers
-                notifyListeners(ParkingEventType.FINE_GENERATED, fine);
+    /**
+     * Saves quoted fines with a single upsert, meant to run inside the exit
+     * transaction. An unpaid fine the ticket already has of the same type
+     * is updated instead, a paid one is kept as it is and not returned. The
+     * quoted fines are left untouched.
+     *
+     * @return the saved fines with their ids, or null if they could not be saved
+     */
+    public List<Fine> persistFines(List<Fine> quotedFines) {
+        List<Fine> savedFines = fineDAO.upsertFines(quotedFines);
+        if (savedFines == null) {
+            System.err.println("Failed to save fines to database");
+            return null;
+        }
 
-                return fine;
-            } else {
-                System.err.println("Failed to save fine to database");
-                return null;
-            }
-        } else {
-            existingFine.setFineAmount(fineAmount);
+        for (Fine fine : savedFines) {
+            System.out.println("Fine saved: " + fine);
 
-            if (fineDAO.updateFine(existingFine)) {
-                System.out.println("Fine updated: " + existingFine);
+            // Notify observers
+            notifyListeners(ParkingEventType.FINE_GENERATED, fine);
+        }
 
-                // Notify observers
-                notifyListeners(ParkingEventType.FINE_GENERATED, existingFine);
+        return savedFines;
+    }
 
-                return existingFine;
-            } else {
-                System.err.println("Failed to update fine to database");
-                return null;
-            }
-        }
+    /**
+     * Saves fines of vehicles that are still parked, skipping any whose
+     * ticket has closed or whose fine was paid meanwhile. Nothing is
+     * announced per fine.
+     *
+     * @return the number of fines written, or -1 on error
+     */
+    public int saveParkedTicketFines(List<Fine> fines) {
+        return fineDAO.upsertParkedTicketFines(fines);
     }
 
     public List<Fine> getUnpaidFines(String plateNumber) {
@@ -169,21 +197,24 @@ public class FineManager {
         return fineDAO.getAllUnpaidFines();
     }
 
-    // Observer Pattern Methods 
+    public List<Fine> getUnpaidFinesPage(Fine after, int skip, int limit) {
+        return after == null
+                ? fineDAO.getUnpaidFinesPage(null, 0, skip, limit)
+                : fineDAO.getUnpaidFinesPage(after.getCreatedAt(), after.getFineId(), skip, limit);
+    }
 
-    public void addListener(ParkingEventListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+    public int getUnpaidFineCount() {
+        return fineDAO.getUnpaidFineCount();
     }
 
-    public void removeListener(ParkingEventListener listener) {
-        listeners.remove(listener);
+    public double getTotalUnpaidFineAmount() {
+        return fineDAO.getTotalUnpaidFineAmount();
     }
 
+    // Observer Pattern Methods
+
     private void notifyListeners(ParkingEventType eventType, Object eventData) {
-        for (ParkingEventListener listener : listeners) {
-            listener.onParkingEvent(eventType, eventData);
-        }
+        // fines may be written inside an exit transaction, only announce them once it commits
+        DatabaseManager.getInstance().runAfterCommit(() -> eventBus.publish(eventType, eventData));
     }
 }
@@ -0,0 +1,127 @@
+package parkinglotmanagementsystem.fineandpayment.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import parkinglotmanagementsystem.fineandpayment.model.Fine;
+import parkinglotmanagementsystem.main.observer.ParkingEventBus;
+import parkinglotmanagementsystem.main.observer.ParkingEventType;
+import parkinglotmanagementsystem.main.util.TimeUtil;
+import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
+import parkinglotmanagementsystem.vehicleandticket.service.TicketService;
+
+/**
+ * Keeps the OVERSTAY fines of vehicles still parked up to date, so unpaid
+ * fine totals include what long stays have already earned instead of
+ * waiting for the exit.
+ * Each sweep streams the overstaying tickets together with their current
+ * fine and only writes the fines whose amount has changed, in batches, so
+ * a sweep over a lot where nothing moved tier writes nothing.
+ */
+public class OverstaySweepJob {
+
+    private final FineManager fineManager;
+    private final TicketService ticketService;
+    private final ParkingEventBus eventBus;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+
+    public OverstaySweepJob(FineManager fineManager, long intervalMillis, int batchSize) {
+        this.fineManager = fineManager;
+        this.ticketService = new TicketService();
+        this.eventBus = ParkingEventBus.getInstance();
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "overstay-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sweeps once right away and then every interval.
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::sweepSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            // a failed sweep must not cancel the schedule
+            System.err.println("Overstay sweep failed!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Brings every parked vehicle's OVERSTAY fine up to date.
+     *
+     * @return the number of fines written, or -1 if the sweep failed
+     */
+    public int sweep() {
+        LocalDateTime now = TimeUtil.now();
+        // each ticket is then checked against its own tariff's threshold
+        long shortestThreshold = TariffRegistry.getInstance().getShortestOverstayThresholdHours();
+        LocalDateTime enteredBefore = now.minusHours(shortestThreshold);
+
+        List<Fine> batch = new ArrayList<>(batchSize);
+        int[] written = { 0 };
+        boolean[] failed = { false };
+
+        boolean scanned = ticketService.forEachOverstayingTicket(enteredBefore, (ticket, currentAmount) -> {
+            Fine fine = quote(ticket, now);
+            if (fine == null || (currentAmount != null && currentAmount == fine.getFineAmount())) {
+                return; // not overstayed yet, or still in the same tier
+            }
+
+            batch.add(fine);
+            if (batch.size() >= batchSize) {
+                failed[0] |= !flush(batch, written);
+            }
+        });
+        failed[0] |= !flush(batch, written);
+
+        if (written[0] > 0) {
+            eventBus.publish(ParkingEventType.FINE_GENERATED, written[0]);
+        }
+
+        if (!scanned || failed[0]) {
+            System.err.println("Overstay sweep incomplete, " + written[0] + " fines written");
+            return -1;
+        }
+
+        System.out.println("Overstay sweep: " + written[0] + " fines written");
+        return written[0];
+    }
+
+    private Fine quote(Ticket ticket, LocalDateTime now) {
+        long hoursParked = TimeUtil.calculateDurationHours(ticket.getEntryTime(), now);
+        return fineManager.quoteOverstayFine(ticket, hoursParked, now);
+    }
+
+    private boolean flush(List<Fine> batch, int[] written) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        int count = fineManager.saveParkedTicketFines(batch);
+        batch.clear();
+        if (count < 0) {
+            return false;
+        }
+        written[0] += count;
+        return true;
+    }
+}
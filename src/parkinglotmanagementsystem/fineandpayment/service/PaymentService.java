@@ -3,24 +3,43 @@ package parkinglotmanagementsystem.fineandpayment.service;
 import parkinglotmanagementsystem.fineandpayment.dao.PaymentDAO;
 import parkinglotmanagementsystem.fineandpayment.model.Payment;
 import parkinglotmanagementsystem.fineandpayment.model.PaymentMethod;
-import parkinglotmanagementsystem.main.observer.ParkingEventListener;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueBucket;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueGranularity;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueTotals;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.UnitOfWork;
+import parkinglotmanagementsystem.main.observer.ParkingEventBus;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class PaymentService {
 
     private PaymentDAO paymentDAO;
     private FineManager fineManager;
-    private List<ParkingEventListener> listeners;
+    private ParkingEventBus eventBus;
+
+    // mirror of revenue_totals; replaced whole after each committed payment
+    private volatile RevenueTotals revenueTotals;
 
     public PaymentService(FineManager fineManager) {
         this.paymentDAO = new PaymentDAO();
         this.fineManager = fineManager;
-        this.listeners = new ArrayList<>();
+        this.eventBus = ParkingEventBus.getInstance();
+        loadRevenueTotals();
+    }
+
+    /**
+     * Reloads the in-memory revenue totals from the database.
+     */
+    public void loadRevenueTotals() {
+        RevenueTotals totals = paymentDAO.getRevenueTotals();
+        revenueTotals = totals != null ? totals : RevenueTotals.EMPTY;
     }
 
     public Payment processPayment(String ticketId, List<Integer> fineIds,
@@ -33,15 +52,29 @@ public class PaymentService {
                 paymentMethod,
                 TimeUtil.now());
 
-        if (!paymentDAO.insertPayment(payment)) {
-            System.err.println("Failed to save payment");
+        // the payment and the paid fines commit together, joining the exit's
+        // unit of work when there is one; the revenue totals follow the commit
+        try (UnitOfWork unitOfWork = DatabaseManager.getInstance().beginUnitOfWork()) {
+            if (!paymentDAO.insertPayment(payment)) {
+                System.err.println("Failed to save payment");
+                return null;
+            }
+
+            // leaving without a commit rolls back the payment as well
+            if (!fineIds.isEmpty() && !fineManager.markFinesPaid(fineIds)) {
+                System.err.println("Failed to mark fines as paid for ticket: " + ticketId);
+                return null;
+            }
+
+            // writers are serialized, so these run in commit order
+            unitOfWork.afterCommit(() -> revenueTotals = revenueTotals.add(payment));
+            unitOfWork.commit();
+        } catch (SQLException e) {
+            System.err.println("Failed to commit payment for ticket: " + ticketId);
+            e.printStackTrace();
             return null;
         }
 
-        if (!fineIds.isEmpty()) {
-            fineManager.markFinesPaid(fineIds);
-        }
-
         System.out.println("Payment processed successfully: " + payment);
 
         return payment;
@@ -92,37 +125,51 @@ public class PaymentService {
         return sb.toString();
     }
 
+    /**
+     * Current revenue totals, read from memory.
+     */
+    public RevenueTotals getRevenueTotals() {
+        return revenueTotals;
+    }
+
     public double getTotalRevenue() {
-        return paymentDAO.getTotalRevenue();
+        return revenueTotals.getTotalRevenue();
     }
 
     public double getTotalParkingRevenue() {
-        return paymentDAO.getTotalParkingRevenue();
+        return revenueTotals.getParkingRevenue();
     }
 
     public double getTotalFineRevenue() {
-        return paymentDAO.getTotalFineRevenueFromPayments();
+        return revenueTotals.getFineRevenue();
     }
 
     public int getPaymentCount() {
-        return paymentDAO.getTotalPaymentCount();
+        return revenueTotals.getPaymentCount();
     }
 
-    // Observer Pattern Methods
+    /**
+     * Streams every payment to the visitor, newest first.
+     *
+     * @return false if the payments could not be read
+     */
+    public boolean forEachPayment(Consumer<? super Payment> visitor) {
+        return paymentDAO.forEachPayment(Constants.DB_FETCH_SIZE, visitor);
+    }
 
-    public void addListener(ParkingEventListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+    public List<RevenueBucket> getRevenueByBucket(RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        return paymentDAO.getRevenueByBucket(granularity, from, to);
     }
 
-    public void removeListener(ParkingEventListener listener) {
-        listeners.remove(listener);
+    public List<RevenueBucket> getRevenueBreakdown(RevenueGranularity granularity,
+            LocalDateTime from, LocalDateTime to) {
+        return paymentDAO.getRevenueBreakdown(granularity, from, to);
     }
 
+    // Observer Pattern Methods
+
     private void notifyListeners(ParkingEventType eventType, Object eventData) {
-        for (ParkingEventListener listener : listeners) {
-            listener.onParkingEvent(eventType, eventData);
-        }
+        eventBus.publish(eventType, eventData);
     }
 }
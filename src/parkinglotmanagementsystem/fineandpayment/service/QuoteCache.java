@@ -0,0 +1,73 @@
+package parkinglotmanagementsystem.fineandpayment.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import parkinglotmanagementsystem.fineandpayment.model.Bill;
+
+/**
+ * Keeps each parking session's latest bill quote for a short time, so a
+ * kiosk asking for the running bill again and again is answered without
+ * touching the database. Quotes are looked up by plate number, which maps
+ * to at most one active session, and dropped once that session exits.
+ */
+public class QuoteCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, Entry> quotesByPlate;
+
+    public QuoteCache(long ttlMillis, int maxEntries) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxEntries = maxEntries;
+        this.quotesByPlate = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the cached bill, or null if there is none or it has expired
+     */
+    public Bill get(String plateNumber) {
+        Entry entry = quotesByPlate.get(plateNumber);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            quotesByPlate.remove(plateNumber, entry);
+            return null;
+        }
+        return entry.bill;
+    }
+
+    public void put(Bill bill) {
+        if (quotesByPlate.size() >= maxEntries) {
+            evictExpired();
+        }
+        if (quotesByPlate.size() < maxEntries) {
+            quotesByPlate.put(bill.getPlateNumber(), new Entry(bill, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(String plateNumber) {
+        quotesByPlate.remove(plateNumber);
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        quotesByPlate.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private static class Entry {
+
+        private final Bill bill;
+        private final long expiresAtNanos;
+
+        Entry(Bill bill, long expiresAtNanos) {
+            this.bill = bill;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package parkinglotmanagementsystem.fineandpayment.service;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import parkinglotmanagementsystem.fineandpayment.dao.TariffDAO;
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
+import parkinglotmanagementsystem.fineandpayment.strategy.CompiledTariff;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.SystemConfigCache;
+import parkinglotmanagementsystem.main.dao.SystemConfigDAO;
+import parkinglotmanagementsystem.main.dao.UnitOfWork;
+import parkinglotmanagementsystem.main.util.Constants;
+
+/**
+ * Every tariff version, compiled and ready, and the version new tickets
+ * lock at entry. The versions and the active one are swapped together as
+ * one immutable snapshot, so a reload never shows a half-loaded state.
+ * Saved versions are never edited, so a ticket keeps the rates and fines
+ * of its version whatever is published while it is parked.
+ */
+public class TariffRegistry {
+
+    private static volatile TariffRegistry instance;
+
+    private final TariffDAO tariffDAO;
+    private final SystemConfigDAO configDAO;
+    private final SystemConfigCache configCache;
+    private final Object updateLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public TariffRegistry() {
+        this.tariffDAO = new TariffDAO();
+        this.configDAO = new SystemConfigDAO();
+        this.configCache = SystemConfigCache.getInstance();
+
+        // version 1 holds the rates and fines the system shipped with
+        tariffDAO.insertTariffIfMissing(Tariff.defaults());
+
+        if (!reload()) {
+            // keep billing on the defaults rather than not at all
+            Map<Integer, CompiledTariff> defaults = new HashMap<>();
+            defaults.put(Constants.DEFAULT_TARIFF_VERSION, compile(Tariff.defaults()));
+            snapshot = new Snapshot(defaults, Constants.DEFAULT_TARIFF_VERSION);
+        }
+    }
+
+    public static TariffRegistry getInstance() {
+        if (instance == null) {
+            synchronized (TariffRegistry.class) {
+                if (instance == null) {
+                    instance = new TariffRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The version new tickets lock.
+     */
+    public CompiledTariff getActive() {
+        return snapshot.active;
+    }
+
+    public Tariff getActiveTariff() {
+        return snapshot.active.getTariff();
+    }
+
+    public int getActiveVersion() {
+        return snapshot.active.getVersion();
+    }
+
+    /**
+     * @return the compiled version, or null if there is no such version
+     */
+    public CompiledTariff get(int version) {
+        return snapshot.byVersion.get(version);
+    }
+
+    /**
+     * The shortest stay that any version fines as an overstay.
+     */
+    public long getShortestOverstayThresholdHours() {
+        return snapshot.shortestOverstayThresholdHours;
+    }
+
+    /**
+     * Reads every version and the active one from the database and swaps
+     * them in at once, e.g. after the tariffs table was edited. The system
+     * configuration is reloaded with them, but only once the active version
+     * it names is known to exist.
+     *
+     * @return false if the tariffs could not be loaded, the loaded ones and
+     *         the cached configuration then stay in force
+     */
+    public boolean reload() {
+        synchronized (updateLock) {
+            // the active version may have been edited outside the app too
+            Map<String, String> config = configDAO.getAllConfig();
+            if (config == null) {
+                System.err.println("Failed to read the active tariff version");
+                return false;
+            }
+
+            Map<Integer, CompiledTariff> byVersion = new HashMap<>();
+            for (Tariff tariff : tariffDAO.getAllTariffs()) {
+                byVersion.put(tariff.getVersion(), compile(tariff));
+            }
+
+            int activeVersion = SystemConfigCache.parseTariffVersion(config.get(SystemConfigCache.TARIFF_VERSION));
+            if (!byVersion.containsKey(activeVersion)) {
+                System.err.println("Active tariff version " + activeVersion + " not found");
+                return false;
+            }
+
+            configCache.reload(config);
+            snapshot = new Snapshot(byVersion, activeVersion);
+            System.out.println("Tariffs loaded: " + byVersion.size() + " versions, active version " + activeVersion);
+            return true;
+        }
+    }
+
+    /**
+     * Saves the draft as a new version and makes it the active one. Tickets
+     * issued from then on lock it, parked vehicles keep theirs.
+     *
+     * @return the published tariff, or null if it could not be saved
+     */
+    public Tariff publish(Tariff draft) {
+        synchronized (updateLock) {
+            Tariff published;
+            try (UnitOfWork unitOfWork = DatabaseManager.getInstance().beginUnitOfWork()) {
+                published = tariffDAO.insertTariff(draft);
+                if (published == null || !configCache.setActiveTariffVersion(published.getVersion())) {
+                    System.err.println("Failed to publish tariff");
+                    return null;
+                }
+                unitOfWork.commit();
+            } catch (SQLException e) {
+                System.err.println("Failed to publish tariff");
+                e.printStackTrace();
+                return null;
+            }
+
+            // the other versions are unchanged, only the new one is compiled
+            Map<Integer, CompiledTariff> byVersion = new HashMap<>(snapshot.byVersion);
+            byVersion.put(published.getVersion(), compile(published));
+            snapshot = new Snapshot(byVersion, published.getVersion());
+
+            System.out.println("Tariff version " + published.getVersion() + " published");
+            return published;
+        }
+    }
+
+    private static CompiledTariff compile(Tariff tariff) {
+        return CompiledTariff.compile(tariff, Constants.FINE_TARIFF_HORIZON_HOURS);
+    }
+
+    private static class Snapshot {
+
+        private final Map<Integer, CompiledTariff> byVersion;
+        private final CompiledTariff active;
+        private final long shortestOverstayThresholdHours;
+
+        Snapshot(Map<Integer, CompiledTariff> byVersion, int activeVersion) {
+            this.byVersion = Collections.unmodifiableMap(byVersion);
+            this.active = byVersion.get(activeVersion);
+
+            long shortest = Long.MAX_VALUE;
+            for (CompiledTariff tariff : byVersion.values()) {
+                shortest = Math.min(shortest, tariff.getTariff().getOverstayThresholdHours());
+            }
+            this.shortestOverstayThresholdHours = shortest;
+        }
+    }
+}
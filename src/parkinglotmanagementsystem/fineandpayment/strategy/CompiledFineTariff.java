@@ -0,0 +1,111 @@
+package parkinglotmanagementsystem.fineandpayment.strategy;
+
+import parkinglotmanagementsystem.fineandpayment.model.FineType;
+
+/**
+ * A fine strategy evaluated ahead of time into a lookup table.
+ * The source strategy is sampled for every fine type and every hour up to
+ * a horizon. Past the horizon the fine is extended as a straight line from
+ * the last two hours, which is exact for tariffs that end flat or at a
+ * fixed hourly rate. Other tariffs fall back to the source strategy there.
+ * A lookup is one array read, so bulk evaluation in the overstay sweep
+ * does not go through the strategies' branches on every call.
+ */
+public final class CompiledFineTariff implements FineCalculationStrategy {
+
+    // how far past the horizon the straight-line tail is checked against the source
+    private static final int[] TAIL_CHECK_MULTIPLES = { 2, 4, 16, 256 };
+    private static final double TOLERANCE = 1e-9;
+
+    private static final FineType[] FINE_TYPES = FineType.values();
+
+    private final FineCalculationStrategy source;
+    private final int horizonHours;
+    private final int rowLength;
+    private final double[] fines; // [fineType.ordinal() * rowLength + hours]
+    private final double[] tailRates; // per hour after the horizon, per fine type
+    private final boolean linearTail;
+
+    private CompiledFineTariff(FineCalculationStrategy source, int horizonHours) {
+        this.source = source;
+        this.horizonHours = horizonHours;
+        this.rowLength = horizonHours + 1;
+        this.fines = new double[FINE_TYPES.length * rowLength];
+        this.tailRates = new double[FINE_TYPES.length];
+
+        boolean tailMatches = true;
+        for (FineType fineType : FINE_TYPES) {
+            int row = fineType.ordinal() * rowLength;
+            for (int hours = 0; hours <= horizonHours; hours++) {
+                fines[row + hours] = source.calculateFine(hours, fineType);
+            }
+            tailRates[fineType.ordinal()] = fines[row + horizonHours] - fines[row + horizonHours - 1];
+
+            for (int multiple : TAIL_CHECK_MULTIPLES) {
+                long hours = (long) horizonHours * multiple;
+                double expected = source.calculateFine(hours, fineType);
+                if (Math.abs(extrapolate(fineType, hours) - expected) > TOLERANCE) {
+                    tailMatches = false;
+                }
+            }
+        }
+        this.linearTail = tailMatches;
+    }
+
+    /**
+     * Compiles the strategy over the first horizonHours hours.
+     *
+     * @throws IllegalArgumentException if horizonHours is less than 1
+     */
+    public static CompiledFineTariff compile(FineCalculationStrategy source, int horizonHours) {
+        if (horizonHours < 1) {
+            throw new IllegalArgumentException("Tariff horizon must be at least 1 hour: " + horizonHours);
+        }
+        if (source instanceof CompiledFineTariff) {
+            source = ((CompiledFineTariff) source).source;
+        }
+        return new CompiledFineTariff(source, horizonHours);
+    }
+
+    @Override
+    public double calculateFine(long hoursParked, FineType fineType) {
+        if (hoursParked >= 0 && hoursParked <= horizonHours) {
+            return fines[fineType.ordinal() * rowLength + (int) hoursParked];
+        }
+        if (hoursParked > horizonHours && linearTail) {
+            return extrapolate(fineType, hoursParked);
+        }
+        return source.calculateFine(hoursParked, fineType);
+    }
+
+    private double extrapolate(FineType fineType, long hoursParked) {
+        int ordinal = fineType.ordinal();
+        return fines[ordinal * rowLength + horizonHours]
+                + (hoursParked - horizonHours) * tailRates[ordinal];
+    }
+
+    public FineCalculationStrategy getSource() {
+        return source;
+    }
+
+    public int getHorizonHours() {
+        return horizonHours;
+    }
+
+    /**
+     * @return false if hours past the horizon are passed to the source strategy
+     */
+    public boolean hasLinearTail() {
+        return linearTail;
+    }
+
+    @Override
+    public String getStrategyName() {
+        return source.getStrategyName();
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+}
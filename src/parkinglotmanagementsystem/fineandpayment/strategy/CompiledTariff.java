@@ -0,0 +1,56 @@
+package parkinglotmanagementsystem.fineandpayment.strategy;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
+
+/**
+ * A tariff version together with its fine strategies, compiled once when
+ * the version is loaded. Immutable, so it can be shared between threads
+ * and replaced as a whole when another version becomes active.
+ */
+public final class CompiledTariff {
+
+    private final Tariff tariff;
+    private final Map<FineScheme, FineCalculationStrategy> strategies;
+
+    private CompiledTariff(Tariff tariff, Map<FineScheme, FineCalculationStrategy> strategies) {
+        this.tariff = tariff;
+        this.strategies = Collections.unmodifiableMap(strategies);
+    }
+
+    public static CompiledTariff compile(Tariff tariff, int horizonHours) {
+        long threshold = tariff.getOverstayThresholdHours();
+
+        Map<FineScheme, FineCalculationStrategy> strategies = new EnumMap<>(FineScheme.class);
+        strategies.put(FineScheme.FIXED, CompiledFineTariff.compile(
+                new FixedFineStrategy(threshold, tariff.getFixedFineAmount()), horizonHours));
+        strategies.put(FineScheme.PROGRESSIVE, CompiledFineTariff.compile(
+                new ProgressiveFineStrategy(threshold, tariff.getProgressiveTiers()), horizonHours));
+        strategies.put(FineScheme.HOURLY, CompiledFineTariff.compile(
+                new HourlyFineStrategy(threshold, tariff.getHourlyFineRate(), tariff.getFixedFineAmount()),
+                horizonHours));
+
+        return new CompiledTariff(tariff, strategies);
+    }
+
+    public Tariff getTariff() {
+        return tariff;
+    }
+
+    public int getVersion() {
+        return tariff.getVersion();
+    }
+
+    public FineCalculationStrategy getStrategy(FineScheme scheme) {
+        return strategies.get(scheme);
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledTariff[" + tariff + "]";
+    }
+}
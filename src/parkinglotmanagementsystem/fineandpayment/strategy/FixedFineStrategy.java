@@ -9,20 +9,32 @@ import parkinglotmanagementsystem.main.util.Constants;
  */
 public class FixedFineStrategy implements FineCalculationStrategy {
 
+    private final long overstayThresholdHours;
+    private final double fineAmount;
+
+    public FixedFineStrategy() {
+        this(Constants.OVERSTAY_THRESHOLD_HOURS, Constants.FIXED_FINE_AMOUNT);
+    }
+
+    public FixedFineStrategy(long overstayThresholdHours, double fineAmount) {
+        this.overstayThresholdHours = overstayThresholdHours;
+        this.fineAmount = fineAmount;
+    }
+
     @Override
     public double calculateFine(long hoursParked, FineType fineType) {
         // Fixed fine regardless of duration
         switch (fineType) {
             case OVERSTAY:
                 // Overstay fine only applies if parked > 24 hours
-                if (hoursParked > Constants.OVERSTAY_THRESHOLD_HOURS) {
-                    return Constants.FIXED_FINE_AMOUNT; // RM 50
+                if (hoursParked > overstayThresholdHours) {
+                    return fineAmount; // RM 50
                 }
                 return 0.0;
 
             case RESERVED_MISUSE:
                 // Reserved spot misuse always gets fixed fine
-                return Constants.FIXED_FINE_AMOUNT; // RM 50
+                return fineAmount; // RM 50
 
             default:
                 return 0.0;
@@ -36,6 +48,6 @@ public class FixedFineStrategy implements FineCalculationStrategy {
 
     @Override
     public String toString() {
-        return "FixedFineStrategy[Flat RM " + Constants.FIXED_FINE_AMOUNT + " fine]";
+        return "FixedFineStrategy[Flat RM " + fineAmount + " fine]";
     }
 }
@@ -5,6 +5,20 @@ import parkinglotmanagementsystem.main.util.Constants;
 
 public class HourlyFineStrategy implements FineCalculationStrategy {
 
+    private final long overstayThresholdHours;
+    private final double hourlyFineRate;
+    private final double misuseFineAmount;
+
+    public HourlyFineStrategy() {
+        this(Constants.OVERSTAY_THRESHOLD_HOURS, Constants.HOURLY_FINE_RATE, Constants.FIXED_FINE_AMOUNT);
+    }
+
+    public HourlyFineStrategy(long overstayThresholdHours, double hourlyFineRate, double misuseFineAmount) {
+        this.overstayThresholdHours = overstayThresholdHours;
+        this.hourlyFineRate = hourlyFineRate;
+        this.misuseFineAmount = misuseFineAmount;
+    }
+
     @Override
     public double calculateFine(long hoursParked, FineType fineType) {
         switch (fineType) {
@@ -13,7 +27,7 @@ public class HourlyFineStrategy implements FineCalculationStrategy {
 
             case RESERVED_MISUSE:
                 // Reserved spot misuse gets a fixed penalty
-                return Constants.FIXED_FINE_AMOUNT; // RM 50
+                return misuseFineAmount; // RM 50
 
             default:
                 return 0.0;
@@ -21,12 +35,12 @@ public class HourlyFineStrategy implements FineCalculationStrategy {
     }
 
     private double calculateOverstayFine(long hoursParked) {
-        if (hoursParked <= Constants.OVERSTAY_THRESHOLD_HOURS) {
+        if (hoursParked <= overstayThresholdHours) {
             return 0.0; // No fine for first 24 hours
         }
 
-        long overstayHours = hoursParked - Constants.OVERSTAY_THRESHOLD_HOURS;
-        return overstayHours * Constants.HOURLY_FINE_RATE; // RM 20 per hour
+        long overstayHours = hoursParked - overstayThresholdHours;
+        return overstayHours * hourlyFineRate; // RM 20 per hour
     }
 
     @Override
@@ -36,6 +50,6 @@ public class HourlyFineStrategy implements FineCalculationStrategy {
 
     @Override
     public String toString() {
-        return "HourlyFineStrategy[RM " + Constants.HOURLY_FINE_RATE + " per hour over 24 hours]";
+        return "HourlyFineStrategy[RM " + hourlyFineRate + " per hour over " + overstayThresholdHours + " hours]";
     }
 }
@@ -1,5 +1,7 @@
 package parkinglotmanagementsystem.fineandpayment.strategy;
 
+import java.util.Arrays;
+
 import parkinglotmanagementsystem.fineandpayment.model.FineType;
 import parkinglotmanagementsystem.main.util.Constants;
 
@@ -11,9 +13,31 @@ import parkinglotmanagementsystem.main.util.Constants;
  * - 48-72 hours: RM 150 (50 + 100)
  * - 72-96 hours: RM 300 (50 + 100 + 150)
  * - 96+ hours: RM 500 (50 + 100 + 150 + 200)
+ * A tariff may change the threshold and the tier amounts; every tier but
+ * the last lasts 24 hours.
  */
 public class ProgressiveFineStrategy implements FineCalculationStrategy {
 
+    private final long overstayThresholdHours;
+    private final double[] tiers;
+
+    public ProgressiveFineStrategy() {
+        this(Constants.OVERSTAY_THRESHOLD_HOURS, new double[] {
+                Constants.PROGRESSIVE_TIER_1,
+                Constants.PROGRESSIVE_TIER_2,
+                Constants.PROGRESSIVE_TIER_3,
+                Constants.PROGRESSIVE_TIER_4 });
+    }
+
+    /**
+     * @param tiers cumulative fine of each tier, the last one applies from
+     *              then on
+     */
+    public ProgressiveFineStrategy(long overstayThresholdHours, double[] tiers) {
+        this.overstayThresholdHours = overstayThresholdHours;
+        this.tiers = tiers.clone();
+    }
+
     @Override
     public double calculateFine(long hoursParked, FineType fineType) {
         switch (fineType) {
@@ -22,7 +46,7 @@ public class ProgressiveFineStrategy implements FineCalculationStrategy {
 
             case RESERVED_MISUSE:
                 // Reserved spot misuse gets the first tier fine
-                return Constants.PROGRESSIVE_TIER_1; // RM 50
+                return tiers[0]; // RM 50
 
             default:
                 return 0.0;
@@ -30,17 +54,13 @@ public class ProgressiveFineStrategy implements FineCalculationStrategy {
     }
 
     private double calculateOverstayFine(long hoursParked) {
-        if (hoursParked <= 24) {
+        if (hoursParked <= overstayThresholdHours) {
             return 0.0; // No fine for first 24 hours
-        } else if (hoursParked <= 48) {
-            return Constants.PROGRESSIVE_TIER_1; // RM 50
-        } else if (hoursParked <= 72) {
-            return Constants.PROGRESSIVE_TIER_2; // RM 150 (50 + 100)
-        } else if (hoursParked <= 96) {
-            return Constants.PROGRESSIVE_TIER_3; // RM 300 (50 + 100 + 150)
-        } else {
-            return Constants.PROGRESSIVE_TIER_4; // RM 500 (50 + 100 + 150 + 200)
         }
+
+        // 25-48 hours is tier 0, 49-72 hours tier 1, and so on
+        long tier = (hoursParked - overstayThresholdHours - 1) / Constants.PROGRESSIVE_TIER_HOURS;
+        return tiers[(int) Math.min(tier, tiers.length - 1)];
     }
 
     @Override
@@ -50,6 +70,6 @@ public class ProgressiveFineStrategy implements FineCalculationStrategy {
 
     @Override
     public String toString() {
-        return "ProgressiveFineStrategy[Tiered: 24-48h=RM50, 48-72h=RM150, 72-96h=RM300, 96+h=RM500]";
+        return "ProgressiveFineStrategy[Tiered from " + overstayThresholdHours + "h: RM" + Arrays.toString(tiers) + "]";
     }
 }
@@ -3,6 +3,7 @@ package parkinglotmanagementsystem.main;
 import parkinglotmanagementsystem.admin.controller.AdminController;
 import parkinglotmanagementsystem.fineandpayment.service.*;
 import parkinglotmanagementsystem.main.ui.MainFrame;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.parking.service.ParkingService;
 import parkinglotmanagementsystem.report.controller.ReportController;
 import parkinglotmanagementsystem.vehicleandticket.controller.EntryController;
@@ -24,6 +25,11 @@ public class Main {
         FineManager fineManager = new FineManager();
         PaymentService paymentService = new PaymentService(fineManager);
 
+        // keep the overstay fines of parked vehicles current
+        OverstaySweepJob overstaySweepJob = new OverstaySweepJob(fineManager,
+                Constants.OVERSTAY_SWEEP_INTERVAL_MILLIS, Constants.OVERSTAY_SWEEP_BATCH_SIZE);
+        overstaySweepJob.start();
+
         // Initialize controllers
         AdminController adminController = new AdminController(parkingService, fineManager, paymentService);
         ReportController reportController = new ReportController(adminController);
@@ -0,0 +1,78 @@
+package parkinglotmanagementsystem.main.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds the WAL back into the main database file while the lot is idle,
+ * so checkpoints are not paid for inside an entry or exit commit.
+ */
+class CheckpointScheduler {
+
+    private final ConnectionPool pool;
+    private final long intervalMillis;
+    private final long idleMillis;
+    private final ScheduledExecutorService executor;
+
+    // last writer release already covered by a checkpoint
+    private long checkpointedThrough;
+
+    CheckpointScheduler(ConnectionPool pool, long intervalMillis, long idleMillis) {
+        this.pool = pool;
+        this.intervalMillis = intervalMillis;
+        this.idleMillis = idleMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start() {
+        executor.scheduleWithFixedDelay(this::checkpointIfIdle, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    private void checkpointIfIdle() {
+        long lastWrite = pool.getLastWriteMillis();
+        if (lastWrite <= checkpointedThrough) {
+            return; // nothing written since the last checkpoint
+        }
+        if (System.currentTimeMillis() - lastWrite < idleMillis) {
+            return; // lanes are still busy, try again later
+        }
+
+        try (Connection conn = pool.tryBorrowWriter()) {
+            if (conn == null) {
+                return; // a write is in progress
+            }
+            checkpoint(conn, "PASSIVE");
+        } catch (SQLException e) {
+            System.err.println("Idle WAL checkpoint failed!");
+            e.printStackTrace();
+        } finally {
+            checkpointedThrough = pool.getLastWriteMillis();
+        }
+    }
+
+    /**
+     * Runs a checkpoint on the given write connection. TRUNCATE also resets
+     * the WAL file and is used on shutdown.
+     */
+    static void checkpoint(Connection conn, String mode) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ");")) {
+            if (rs.next() && rs.getInt(1) != 0) {
+                System.err.println("WAL checkpoint (" + mode + ") was blocked by a busy reader or writer");
+            }
+        }
+    }
+}
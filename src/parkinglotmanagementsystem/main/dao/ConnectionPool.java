@@ -0,0 +1,307 @@
+package parkinglotmanagementsystem.main.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection pool shaped for SQLite: one writer connection guarded by a lock
+ * and a bounded set of read-only reader connections.
+ * Borrowed connections are proxies, closing them hands the physical
+ * connection back to the pool instead of closing it.
+ */
+class ConnectionPool {
+
+    private final String url;
+    private final StorageProfile profile;
+    private final int readerPoolSize;
+    private final long borrowTimeoutMillis;
+
+    private final BlockingQueue<Connection> idleReaders;
+    private final List<Connection> allReaders;
+    private final AtomicInteger openedReaders;
+
+    private final ReentrantLock writeLock;
+    private Connection writer;
+    private volatile long lastWriteMillis;
+
+    private volatile boolean closed;
+
+    ConnectionPool(String url, StorageProfile profile, int readerPoolSize, long borrowTimeoutMillis)
+            throws SQLException {
+        if (readerPoolSize < 1) {
+            throw new IllegalArgumentException("Reader pool size must be at least 1");
+        }
+
+        this.url = url;
+        this.profile = profile;
+        this.readerPoolSize = readerPoolSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleReaders = new ArrayBlockingQueue<>(readerPoolSize);
+        this.allReaders = new ArrayList<>();
+        this.openedReaders = new AtomicInteger();
+        this.writeLock = new ReentrantLock(true);
+
+        // open the writer eagerly so the database file and WAL are set up first
+        this.writer = openWriter();
+    }
+
+    Connection borrowReader() throws SQLException {
+        ensureOpen();
+
+        Connection physical = idleReaders.poll();
+
+        if (physical == null) {
+            physical = openReaderIfBelowLimit();
+        }
+
+        if (physical == null) {
+            try {
+                physical = idleReaders.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a read connection", e);
+            }
+
+            if (physical == null) {
+                throw new SQLException("Timed out waiting for a read connection");
+            }
+        }
+
+        if (physical.isClosed()) {
+            physical = replaceReader(physical);
+        }
+
+        Connection borrowed = physical;
+        return wrap(borrowed, () -> releaseReader(borrowed));
+    }
+
+    Connection borrowWriter() throws SQLException {
+        ensureOpen();
+
+        try {
+            if (!writeLock.tryLock(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the write connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write connection", e);
+        }
+
+        try {
+            if (writer == null || writer.isClosed()) {
+                writer = openWriter();
+            }
+        } catch (SQLException e) {
+            writeLock.unlock();
+            throw e;
+        }
+
+        return wrap(writer, this::releaseWriter);
+    }
+
+    /**
+     * Borrows the write connection only if no one else holds it.
+     *
+     * @return the write connection, or null if it is busy
+     */
+    Connection tryBorrowWriter() throws SQLException {
+        ensureOpen();
+
+        if (!writeLock.tryLock()) {
+            return null;
+        }
+
+        try {
+            if (writer == null || writer.isClosed()) {
+                writer = openWriter();
+            }
+        } catch (SQLException e) {
+            writeLock.unlock();
+            throw e;
+        }
+
+        return wrap(writer, this::releaseWriter);
+    }
+
+    long getLastWriteMillis() {
+        return lastWriteMillis;
+    }
+
+    void close() {
+        closed = true;
+
+        writeLock.lock();
+        try {
+            closeQuietly(writer);
+            writer = null;
+        } finally {
+            writeLock.unlock();
+        }
+
+        synchronized (allReaders) {
+            for (Connection reader : allReaders) {
+                closeQuietly(reader);
+            }
+            allReaders.clear();
+        }
+        idleReaders.clear();
+    }
+
+    private Connection openWriter() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        profile.applyTo(connection, true);
+        return connection;
+    }
+
+    private Connection openReader() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        profile.applyTo(connection, false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA query_only = ON;");
+        }
+        synchronized (allReaders) {
+            allReaders.add(connection);
+        }
+        return connection;
+    }
+
+    private Connection openReaderIfBelowLimit() throws SQLException {
+        while (true) {
+            int opened = openedReaders.get();
+            if (opened >= readerPoolSize) {
+                return null;
+            }
+            if (openedReaders.compareAndSet(opened, opened + 1)) {
+                try {
+                    return openReader();
+                } catch (SQLException e) {
+                    openedReaders.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Connection replaceReader(Connection stale) throws SQLException {
+        synchronized (allReaders) {
+            allReaders.remove(stale);
+        }
+        try {
+            return openReader();
+        } catch (SQLException e) {
+            openedReaders.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void releaseReader(Connection physical) {
+        if (closed) {
+            closeQuietly(physical);
+            return;
+        }
+        idleReaders.offer(physical);
+    }
+
+    private void releaseWriter() {
+        try {
+            // never hand an open transaction to the next borrower
+            if (writer != null && !writer.isClosed() && !writer.getAutoCommit()) {
+                System.err.println("Write connection returned with an open transaction, rolling back");
+                writer.rollback();
+                writer.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to reset write connection!");
+            e.printStackTrace();
+        } finally {
+            lastWriteMillis = System.currentTimeMillis();
+            writeLock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close pooled connection!");
+            e.printStackTrace();
+        }
+    }
+
+    static Connection wrap(Connection physical, Runnable release) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new BorrowedConnectionHandler(physical, release));
+    }
+
+    /**
+     * Forwards calls to the physical connection until the borrower closes it,
+     * then returns the connection to the pool exactly once.
+     */
+    private static class BorrowedConnectionHandler implements InvocationHandler {
+
+        private final Connection physical;
+        private final Runnable release;
+        private boolean released;
+
+        BorrowedConnectionHandler(Connection physical, Runnable release) {
+            this.physical = physical;
+            this.release = release;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release.run();
+                    }
+                    return null;
+                case "isClosed":
+                    return released || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    break;
+            }
+
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
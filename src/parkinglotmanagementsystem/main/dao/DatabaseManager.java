@@ -1,31 +1,89 @@
 package parkinglotmanagementsystem.main.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 import parkinglotmanagementsystem.main.util.Constants;
 
 /**
- * Singleton class for managing database connections and initialization
+ * Singleton class for managing database connections and initialization.
+ * DAOs borrow a connection per operation and close it to give it back:
+ * reads go through a pool of reader connections, writes go through the
+ * single writer connection which SQLite allows at any time.
  */
 public class DatabaseManager {
 
-    private static DatabaseManager instance;
-    private Connection connection;
+    // bump whenever INDEXES changes so existing databases pick up the new set
+    private static final int INDEX_SET_VERSION = 3;
+
+    // secondary indexes for the hot lookup predicates of the DAOs
+    private static final String[] INDEXES = {
+            // TicketDAO.findActiveTicket / isVehicleParked
+            "CREATE INDEX IF NOT EXISTS idx_tickets_active_plate ON tickets(plate_number, entry_time) WHERE exit_time IS NULL;",
+            // TicketDAO.getAllActiveTickets / getActiveTicketsPage / getActiveTicketCount,
+            // ticket_id is the keyset tie-breaker
+            "DROP INDEX IF EXISTS idx_tickets_active_entry;",
+            "CREATE INDEX IF NOT EXISTS idx_tickets_active_entry_id ON tickets(entry_time, ticket_id) WHERE exit_time IS NULL;",
+            // FineDAO.getUnpaidFines
+            "CREATE INDEX IF NOT EXISTS idx_fines_unpaid_plate ON fines(plate_number, created_at) WHERE is_paid = 0;",
+            // FineDAO.getAllUnpaidFines / getUnpaidFinesPage (fine_id is the rowid, so it is in the index)
+            "CREATE INDEX IF NOT EXISTS idx_fines_unpaid_created ON fines(created_at) WHERE is_paid = 0;",
+            // FineDAO.upsertFines conflict target and
+            // tickets foreign key lookups; a ticket has at most one fine per type, so
+            // duplicates left by the old select-then-insert path are dropped first,
+            // keeping a paid one if there is one, else the oldest
+            """
+                DELETE FROM fines WHERE fine_id NOT IN (
+                    SELECT fine_id FROM (
+                        SELECT fine_id, ROW_NUMBER() OVER (
+                            PARTITION BY ticket_id, fine_type ORDER BY is_paid DESC, fine_id) AS row_rank
+                        FROM fines)
+                    WHERE row_rank = 1);
+            """,
+            "DROP INDEX IF EXISTS idx_fines_ticket_type;",
+            "CREATE UNIQUE INDEX IF NOT EXISTS ux_fines_ticket_type ON fines(ticket_id, fine_type);",
+            // PaymentDAO.getPaymentByTicket
+            "CREATE INDEX IF NOT EXISTS idx_payments_ticket ON payments(ticket_id);",
+            // PaymentDAO.getAllPayments ordering
+            "CREATE INDEX IF NOT EXISTS idx_payments_time ON payments(payment_time);",
+            // ParkingSpotDAO.findAvailableSpots, covers its ORDER BY
+            "CREATE INDEX IF NOT EXISTS idx_spots_free_by_type ON parking_spots(spot_type, floor_number, row_number, spot_number) WHERE is_occupied = 0;",
+            // ParkingSpotDAO.getSpotsByFloor / getAllSpots ordering
+            "CREATE INDEX IF NOT EXISTS idx_spots_layout ON parking_spots(floor_number, row_number, spot_number);",
+    };
+
+    private static volatile DatabaseManager instance;
+    private final ThreadLocal<UnitOfWork> currentUnitOfWork = new ThreadLocal<>();
+    private volatile ConnectionPool pool;
+    private CheckpointScheduler checkpointScheduler;
 
     private DatabaseManager() {
         try {
             // load SQLite JDBC driver
             Class.forName("org.sqlite.JDBC");
 
-            // establish connection
-            connection = DriverManager.getConnection(Constants.DB_URL);
-            System.out.println("Database connection established: " + Constants.DB_FILE);
+            // establish connection pool
+            StorageProfile profile = StorageProfile.fromSystemProperties();
+            int readerPoolSize = Integer.getInteger("parkinglot.db.readers", Constants.DB_READER_POOL_SIZE);
+            pool = new ConnectionPool(Constants.DB_URL, profile, readerPoolSize,
+                    Constants.DB_BORROW_TIMEOUT_MILLIS);
+            System.out.println("Database connection pool established: " + Constants.DB_FILE
+                    + " (1 writer, " + readerPoolSize + " readers)");
+            System.out.println("Storage profile: " + profile);
 
             // initialize database schema
             initializeDatabase();
+
+            // checkpoint the WAL while idle instead of inside lane commits
+            if (profile.isWal()) {
+                checkpointScheduler = new CheckpointScheduler(pool,
+                        profile.getCheckpointIntervalMillis(), profile.getCheckpointIdleMillis());
+                checkpointScheduler.start();
+            }
+
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeConnection, "db-shutdown"));
         } catch (ClassNotFoundException e) {
             System.err.println("SQLite JDBC driver not found!");
             e.printStackTrace();
@@ -36,30 +94,97 @@ public class DatabaseManager {
     }
 
     public static DatabaseManager getInstance() {
-        if (instance == null) {
-            instance = new DatabaseManager();
+        DatabaseManager result = instance;
+        if (result == null) {
+            synchronized (DatabaseManager.class) {
+                result = instance;
+                if (result == null) {
+                    result = new DatabaseManager();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
 
-    public Connection getConnection() {
-        try {
-            // Check if connection is closed and reconnect if necessary
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(Constants.DB_URL);
-            }
-        } catch (SQLException e) {
-            System.err.println("Failed to get connection!");
-            e.printStackTrace();
+    /**
+     * Borrows a read-only connection. Close it to return it to the pool.
+     * Inside a unit of work this is the transaction's connection, so reads
+     * see the transaction's own uncommitted writes.
+     */
+    public Connection getReadConnection() throws SQLException {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork != null) {
+            return unitOfWork.borrowConnection();
         }
-        return connection;
+        return requirePool().borrowReader();
     }
 
-    private void initializeDatabase() {
-        try (Statement stmt = connection.createStatement()) {
+    /**
+     * Borrows the write connection, blocking other writers until it is closed.
+     * Inside a unit of work this is the transaction's connection.
+     */
+    public Connection getWriteConnection() throws SQLException {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork != null) {
+            return unitOfWork.borrowConnection();
+        }
+        return requirePool().borrowWriter();
+    }
+
+    /**
+     * Starts a transaction on the write connection and binds it to the
+     * calling thread, or joins the one already open on this thread.
+     */
+    public UnitOfWork beginUnitOfWork() throws SQLException {
+        UnitOfWork active = currentUnitOfWork.get();
+        if (active != null) {
+            return active.join();
+        }
+
+        UnitOfWork unitOfWork = UnitOfWork.begin(requirePool().borrowWriter(), currentUnitOfWork::remove);
+        currentUnitOfWork.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    public boolean isInUnitOfWork() {
+        return currentUnitOfWork.get() != null;
+    }
+
+    /**
+     * Runs the action after the current unit of work commits, or right away
+     * when no unit of work is open on this thread.
+     */
+    public void runAfterCommit(Runnable action) {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork != null) {
+            unitOfWork.afterCommit(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Runs the action if the current unit of work rolls back. Does nothing
+     * when no unit of work is open on this thread.
+     */
+    public void runAfterRollback(Runnable action) {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork != null) {
+            unitOfWork.afterRollback(action);
+        }
+    }
+
+    private ConnectionPool requirePool() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database is not available");
+        }
+        return pool;
+    }
 
-            // enable foreign key constraints
-            stmt.execute("PRAGMA foreign_keys = ON;");
+    private void initializeDatabase() {
+        try (Connection conn = getWriteConnection();
+                Statement stmt = conn.createStatement()) {
 
             // table 1: parking_spots
             String createSpotsTable = """
@@ -95,12 +220,16 @@ public class DatabaseManager {
                             entry_time TEXT NOT NULL,
                             exit_time TEXT,
                             fine_scheme TEXT NOT NULL CHECK(fine_scheme IN ('FIXED', 'PROGRESSIVE', 'HOURLY')),
+                            tariff_version INTEGER NOT NULL DEFAULT 1,
                             FOREIGN KEY(plate_number) REFERENCES vehicles(plate_number),
                             FOREIGN KEY(spot_id) REFERENCES parking_spots(spot_id)
                         );
                     """;
             stmt.execute(createTicketsTable);
 
+            // tickets issued before tariffs were versioned locked version 1
+            addColumnIfMissing(stmt, "tickets", "tariff_version", "INTEGER NOT NULL DEFAULT 1");
+
             // table 4: fines
             String createFinesTable = """
                         CREATE TABLE IF NOT EXISTS fines (
@@ -133,6 +262,69 @@ public class DatabaseManager {
                     """;
             stmt.execute(createPaymentsTable);
 
+            // running totals over payments, kept in step by PaymentDAO.insertPayment
+            String createRevenueTotalsTable = """
+                        CREATE TABLE IF NOT EXISTS revenue_totals (
+                            id INTEGER PRIMARY KEY CHECK(id = 1),
+                            parking_total REAL NOT NULL,
+                            fine_total REAL NOT NULL,
+                            total REAL NOT NULL,
+                            payment_count INTEGER NOT NULL
+                        );
+                    """;
+            stmt.execute(createRevenueTotalsTable);
+
+            // seeded from existing payments the first time only
+            String initRevenueTotals = """
+                        INSERT OR IGNORE INTO revenue_totals
+                        (id, parking_total, fine_total, total, payment_count)
+                        SELECT 1, COALESCE(SUM(parking_fee), 0), COALESCE(SUM(fine_amount), 0),
+                               COALESCE(SUM(total_amount), 0), COUNT(*)
+                        FROM payments;
+                    """;
+            stmt.execute(initRevenueTotals);
+
+            // revenue per time bucket, payment method and spot type, kept in
+            // step by PaymentDAO.insertPayment
+            String createRevenueRollupsTable = """
+                        CREATE TABLE IF NOT EXISTS revenue_rollups (
+                            granularity TEXT NOT NULL CHECK(granularity IN ('HOUR', 'DAY', 'MONTH')),
+                            bucket_start TEXT NOT NULL,
+                            payment_method TEXT NOT NULL,
+                            spot_type TEXT NOT NULL,
+                            parking_total REAL NOT NULL,
+                            fine_total REAL NOT NULL,
+                            total REAL NOT NULL,
+                            payment_count INTEGER NOT NULL,
+                            PRIMARY KEY(granularity, bucket_start, payment_method, spot_type)
+                        ) WITHOUT ROWID;
+                    """;
+            stmt.execute(createRevenueRollupsTable);
+
+            // seeded from existing payments while the table is still empty
+            String initRevenueRollups = """
+                        INSERT INTO revenue_rollups
+                        (granularity, bucket_start, payment_method, spot_type,
+                         parking_total, fine_total, total, payment_count)
+                        SELECT g.granularity,
+                               CASE g.granularity
+                                   WHEN 'HOUR' THEN strftime('%Y-%m-%dT%H:00:00', p.payment_time)
+                                   WHEN 'DAY' THEN strftime('%Y-%m-%dT00:00:00', p.payment_time)
+                                   ELSE strftime('%Y-%m-01T00:00:00', p.payment_time)
+                               END AS bucket_start,
+                               p.payment_method, s.spot_type,
+                               SUM(p.parking_fee), SUM(p.fine_amount), SUM(p.total_amount), COUNT(*)
+                        FROM payments p
+                        JOIN tickets t ON t.ticket_id = p.ticket_id
+                        JOIN parking_spots s ON s.spot_id = t.spot_id
+                        CROSS JOIN (SELECT 'HOUR' AS granularity
+                                    UNION ALL SELECT 'DAY'
+                                    UNION ALL SELECT 'MONTH') g
+                        WHERE NOT EXISTS (SELECT 1 FROM revenue_rollups)
+                        GROUP BY g.granularity, bucket_start, p.payment_method, s.spot_type;
+                    """;
+            stmt.execute(initRevenueRollups);
+
             // table 6: system_config
             String createConfigTable = """
                         CREATE TABLE IF NOT EXISTS system_config (
@@ -142,13 +334,37 @@ public class DatabaseManager {
                     """;
             stmt.execute(createConfigTable);
 
-            // Initialize default fine scheme if not exists
+            // Initialize default fine scheme and tariff if not exists
             String initConfig = """
                         INSERT OR IGNORE INTO system_config (config_key, config_value)
-                        VALUES ('FINE_SCHEME', 'FIXED');
+                        VALUES ('FINE_SCHEME', 'FIXED'), ('TARIFF_VERSION', '1');
                     """;
             stmt.execute(initConfig);
 
+            // table 7: tariffs, one row per published version of the rates
+            // and fines; version 1 is saved by TariffRegistry
+            String createTariffsTable = """
+                        CREATE TABLE IF NOT EXISTS tariffs (
+                            tariff_version INTEGER PRIMARY KEY AUTOINCREMENT,
+                            overstay_threshold_hours INTEGER NOT NULL,
+                            fixed_fine REAL NOT NULL,
+                            hourly_fine_rate REAL NOT NULL,
+                            progressive_tier_1 REAL NOT NULL,
+                            progressive_tier_2 REAL NOT NULL,
+                            progressive_tier_3 REAL NOT NULL,
+                            progressive_tier_4 REAL NOT NULL,
+                            compact_rate REAL NOT NULL,
+                            regular_rate REAL NOT NULL,
+                            handicapped_rate REAL NOT NULL,
+                            reserved_rate REAL NOT NULL,
+                            handicapped_vehicle_rate REAL NOT NULL,
+                            created_at TEXT NOT NULL
+                        );
+                    """;
+            stmt.execute(createTariffsTable);
+
+            createIndexes(stmt);
+
             System.out.println("Database schema initialized successfully.");
 
         } catch (SQLException e) {
@@ -157,20 +373,68 @@ public class DatabaseManager {
         }
     }
 
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+    private void addColumnIfMissing(Statement stmt, String table, String column, String definition)
+            throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ");")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return;
+                }
             }
-        } catch (SQLException e) {
-            System.err.println("Failed to close connection!");
-            e.printStackTrace();
+        }
+
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition + ";");
+        System.out.println("Added column " + table + "." + column);
+    }
+
+    private void createIndexes(Statement stmt) throws SQLException {
+        int installedVersion = 0;
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version;")) {
+            if (rs.next()) {
+                installedVersion = rs.getInt(1);
+            }
+        }
+
+        if (installedVersion >= INDEX_SET_VERSION) {
+            return;
+        }
+
+        for (String createIndex : INDEXES) {
+            stmt.execute(createIndex);
+        }
+
+        // refresh planner statistics so the new indexes are picked up
+        stmt.execute("ANALYZE;");
+        stmt.execute("PRAGMA user_version = " + INDEX_SET_VERSION + ";");
+
+        System.out.println("Index set upgraded from version " + installedVersion + " to " + INDEX_SET_VERSION);
+    }
+
+    public synchronized void closeConnection() {
+        if (checkpointScheduler != null) {
+            checkpointScheduler.stop();
+            checkpointScheduler = null;
+        }
+
+        if (pool != null) {
+            try (Connection conn = pool.borrowWriter()) {
+                CheckpointScheduler.checkpoint(conn, "TRUNCATE");
+            } catch (SQLException e) {
+                System.err.println("Final WAL checkpoint failed!");
+                e.printStackTrace();
+            }
+
+            pool.close();
+            pool = null;
+            System.out.println("Database connections closed.");
         }
     }
 
     public void resetDatabase() {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection conn = getWriteConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS revenue_rollups;");
+            stmt.execute("DROP TABLE IF EXISTS revenue_totals;");
             stmt.execute("DROP TABLE IF EXISTS payments;");
             stmt.execute("DROP TABLE IF EXISTS fines;");
             stmt.execute("DROP TABLE IF EXISTS tickets;");
@@ -178,6 +442,8 @@ public class DatabaseManager {
             stmt.execute("DROP TABLE IF EXISTS vehicles;");
             stmt.execute("DROP TABLE IF EXISTS parking_spots;");
             stmt.execute("DROP TABLE IF EXISTS system_config;");
+            stmt.execute("DROP TABLE IF EXISTS tariffs;");
+            stmt.execute("PRAGMA user_version = 0;");
             System.out.println("Database reset completed.");
 
             // Reinitialize
@@ -0,0 +1,39 @@
+package parkinglotmanagementsystem.main.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Walks a query's rows one at a time, handing each mapped row to a visitor
+ * instead of collecting them, so large histories can be processed in
+ * constant memory. The result set is always closed, also when the visitor
+ * throws.
+ */
+public final class ResultCursor {
+
+    /**
+     * Executes the prepared query and visits every row in order.
+     *
+     * @param fetchSize rows the driver may buffer at a time
+     * @return the number of rows visited
+     */
+    public static <T> int forEach(PreparedStatement pstmt, int fetchSize,
+            RowMapper<? extends T> mapper, Consumer<? super T> visitor) throws SQLException {
+        pstmt.setFetchSize(fetchSize);
+
+        int rows = 0;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                visitor.accept(mapper.mapRow(rs));
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private ResultCursor() {
+        // Prevent instantiation
+    }
+}
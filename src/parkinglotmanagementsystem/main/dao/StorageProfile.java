@@ -0,0 +1,158 @@
+package parkinglotmanagementsystem.main.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Set;
+
+import parkinglotmanagementsystem.main.util.Constants;
+
+/**
+ * SQLite tuning applied to every pooled connection when it is opened.
+ * Defaults come from Constants and can be overridden with
+ * -Dparkinglot.db.&lt;setting&gt;=value at startup.
+ */
+public class StorageProfile {
+
+    private static final Set<String> JOURNAL_MODES = Set.of("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+    private static final Set<String> SYNCHRONOUS_LEVELS = Set.of("OFF", "NORMAL", "FULL", "EXTRA");
+    private static final Set<String> TEMP_STORES = Set.of("DEFAULT", "FILE", "MEMORY");
+
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheSizeKib;
+    private final long mmapSizeBytes;
+    private final String tempStore;
+    private final int busyTimeoutMillis;
+    private final int walAutoCheckpointPages;
+    private final long checkpointIntervalMillis;
+    private final long checkpointIdleMillis;
+
+    public StorageProfile(String journalMode, String synchronous, int cacheSizeKib, long mmapSizeBytes,
+            String tempStore, int busyTimeoutMillis, int walAutoCheckpointPages,
+            long checkpointIntervalMillis, long checkpointIdleMillis) {
+        this.journalMode = requireOneOf("journal_mode", journalMode, JOURNAL_MODES);
+        this.synchronous = requireOneOf("synchronous", synchronous, SYNCHRONOUS_LEVELS);
+        this.tempStore = requireOneOf("temp_store", tempStore, TEMP_STORES);
+
+        if (cacheSizeKib < 0 || mmapSizeBytes < 0 || busyTimeoutMillis < 0 || walAutoCheckpointPages < 0) {
+            throw new IllegalArgumentException("Storage profile sizes and timeouts cannot be negative");
+        }
+
+        this.cacheSizeKib = cacheSizeKib;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        this.checkpointIdleMillis = checkpointIdleMillis;
+    }
+
+    public static StorageProfile defaults() {
+        return new StorageProfile(
+                Constants.DB_JOURNAL_MODE,
+                Constants.DB_SYNCHRONOUS,
+                Constants.DB_CACHE_SIZE_KIB,
+                Constants.DB_MMAP_SIZE_BYTES,
+                Constants.DB_TEMP_STORE,
+                Constants.DB_BUSY_TIMEOUT_MILLIS,
+                Constants.DB_WAL_AUTOCHECKPOINT_PAGES,
+                Constants.DB_CHECKPOINT_INTERVAL_MILLIS,
+                Constants.DB_CHECKPOINT_IDLE_MILLIS);
+    }
+
+    public static StorageProfile fromSystemProperties() {
+        try {
+            return new StorageProfile(
+                    System.getProperty("parkinglot.db.journalMode", Constants.DB_JOURNAL_MODE),
+                    System.getProperty("parkinglot.db.synchronous", Constants.DB_SYNCHRONOUS),
+                    Integer.getInteger("parkinglot.db.cacheSizeKib", Constants.DB_CACHE_SIZE_KIB),
+                    Long.getLong("parkinglot.db.mmapSizeBytes", Constants.DB_MMAP_SIZE_BYTES),
+                    System.getProperty("parkinglot.db.tempStore", Constants.DB_TEMP_STORE),
+                    Integer.getInteger("parkinglot.db.busyTimeoutMillis", Constants.DB_BUSY_TIMEOUT_MILLIS),
+                    Integer.getInteger("parkinglot.db.walAutoCheckpointPages", Constants.DB_WAL_AUTOCHECKPOINT_PAGES),
+                    Long.getLong("parkinglot.db.checkpointIntervalMillis", Constants.DB_CHECKPOINT_INTERVAL_MILLIS),
+                    Long.getLong("parkinglot.db.checkpointIdleMillis", Constants.DB_CHECKPOINT_IDLE_MILLIS));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid storage profile override, using defaults: " + e.getMessage());
+            return defaults();
+        }
+    }
+
+    /**
+     * Applies the per-connection PRAGMAs. The journal mode is stored in the
+     * database file, so it is only set through the writer.
+     */
+    void applyTo(Connection connection, boolean writer) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis + ";");
+            if (writer) {
+                stmt.execute("PRAGMA journal_mode = " + journalMode + ";");
+                stmt.execute("PRAGMA wal_autocheckpoint = " + walAutoCheckpointPages + ";");
+            }
+            stmt.execute("PRAGMA synchronous = " + synchronous + ";");
+            // negative cache_size is interpreted by SQLite as KiB instead of pages
+            stmt.execute("PRAGMA cache_size = -" + cacheSizeKib + ";");
+            stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes + ";");
+            stmt.execute("PRAGMA temp_store = " + tempStore + ";");
+            stmt.execute("PRAGMA foreign_keys = ON;");
+        }
+    }
+
+    public boolean isWal() {
+        return "WAL".equals(journalMode);
+    }
+
+    private static String requireOneOf(String name, String value, Set<String> allowed) {
+        String normalized = value == null ? null : value.trim().toUpperCase(Locale.ROOT);
+        if (normalized == null || !allowed.contains(normalized)) {
+            throw new IllegalArgumentException("Unsupported " + name + ": " + value);
+        }
+        return normalized;
+    }
+
+    // Getters
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public int getCacheSizeKib() {
+        return cacheSizeKib;
+    }
+
+    public long getMmapSizeBytes() {
+        return mmapSizeBytes;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    public int getWalAutoCheckpointPages() {
+        return walAutoCheckpointPages;
+    }
+
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public long getCheckpointIdleMillis() {
+        return checkpointIdleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "StorageProfile[journal_mode=%s, synchronous=%s, cache=%dKiB, mmap=%dB, temp_store=%s, busy_timeout=%dms]",
+                journalMode, synchronous, cacheSizeKib, mmapSizeBytes, tempStore, busyTimeoutMillis);
+    }
+}
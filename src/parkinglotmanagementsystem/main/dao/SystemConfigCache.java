@@ -0,0 +1,187 @@
+package parkinglotmanagementsystem.main.dao;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
+import parkinglotmanagementsystem.main.util.Constants;
+
+/**
+ * The system configuration, read once at startup and kept in memory.
+ * Reads never touch the database. Writes go through to system_config
+ * first and reach the cache only once they are committed, after which
+ * the listeners are told. Call reload after editing the table outside
+ * this class.
+ */
+public class SystemConfigCache {
+
+    public static final String FINE_SCHEME = "FINE_SCHEME";
+    public static final String TARIFF_VERSION = "TARIFF_VERSION";
+
+    private static volatile SystemConfigCache instance;
+
+    private final SystemConfigDAO configDAO;
+    private final DatabaseManager dbManager;
+    private final Map<String, String> values;
+    private final CopyOnWriteArrayList<ConfigListener> listeners;
+
+    public SystemConfigCache() {
+        this.configDAO = new SystemConfigDAO();
+        this.dbManager = DatabaseManager.getInstance();
+        this.values = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        reload();
+    }
+
+    public static SystemConfigCache getInstance() {
+        if (instance == null) {
+            synchronized (SystemConfigCache.class) {
+                if (instance == null) {
+                    instance = new SystemConfigCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Called with the key and its old and new value, on the thread that
+     * committed the change.
+     */
+    public interface ConfigListener {
+        void onConfigChanged(String key, String oldValue, String newValue);
+    }
+
+    public void addListener(ConfigListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ConfigListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Rereads every key from the database, telling listeners about the
+     * ones that changed.
+     *
+     * @return false if the configuration could not be read, the cached
+     *         values then stay
+     */
+    public boolean reload() {
+        Map<String, String> loaded = configDAO.getAllConfig();
+        if (loaded == null) {
+            return false;
+        }
+
+        reload(loaded);
+        return true;
+    }
+
+    /**
+     * Replaces the cached values with a configuration the caller read from
+     * the database and checked, telling listeners about the keys that
+     * changed.
+     */
+    public void reload(Map<String, String> loaded) {
+        for (Map.Entry<String, String> entry : loaded.entrySet()) {
+            apply(entry.getKey(), entry.getValue());
+        }
+        for (String key : values.keySet()) {
+            if (!loaded.containsKey(key)) {
+                apply(key, null);
+            }
+        }
+    }
+
+    /**
+     * @return the cached value, or null if the key is not set
+     */
+    public String getConfig(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Writes the value to the database. The cache is updated when the write
+     * commits, joining the caller's unit of work if there is one, so a rolled
+     * back write is never seen. The update runs while the writer is still
+     * held, so concurrent writes reach the cache in commit order.
+     */
+    public boolean setConfig(String key, String value) {
+        try (UnitOfWork unitOfWork = dbManager.beginUnitOfWork()) {
+            if (!configDAO.setConfig(key, value)) {
+                return false;
+            }
+
+            unitOfWork.afterCommit(() -> apply(key, value));
+            unitOfWork.commit();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Failed to commit config: " + key);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void apply(String key, String value) {
+        String oldValue = value == null ? values.remove(key) : values.put(key, value);
+        if (Objects.equals(oldValue, value)) {
+            return;
+        }
+
+        for (ConfigListener listener : listeners) {
+            try {
+                listener.onConfigChanged(key, oldValue, value);
+            } catch (RuntimeException e) {
+                System.err.println("Config listener failed for: " + key);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Typed accessors
+
+    public FineScheme getCurrentFineScheme() {
+        return parseFineScheme(getConfig(FINE_SCHEME));
+    }
+
+    public boolean setFineScheme(FineScheme scheme) {
+        return setConfig(FINE_SCHEME, scheme.name());
+    }
+
+    public int getActiveTariffVersion() {
+        return parseTariffVersion(getConfig(TARIFF_VERSION));
+    }
+
+    public boolean setActiveTariffVersion(int version) {
+        return setConfig(TARIFF_VERSION, String.valueOf(version));
+    }
+
+    public static int parseTariffVersion(String versionStr) {
+        if (versionStr == null) {
+            return Constants.DEFAULT_TARIFF_VERSION;
+        }
+
+        try {
+            return Integer.parseInt(versionStr);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid tariff version in config: " + versionStr);
+            return Constants.DEFAULT_TARIFF_VERSION;
+        }
+    }
+
+    public static FineScheme parseFineScheme(String schemeStr) {
+        if (schemeStr == null) {
+            return FineScheme.FIXED; // Default
+        }
+
+        try {
+            return FineScheme.valueOf(schemeStr);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid fine scheme in config: " + schemeStr);
+            return FineScheme.FIXED; // Default fallback
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package parkinglotmanagementsystem.main.dao;
 
 import java.sql.*;
-
-import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
+import java.util.HashMap;
+import java.util.Map;
 
 public class SystemConfigDAO {
 
-    private Connection connection;
+    private DatabaseManager dbManager;
 
     public SystemConfigDAO() {
-        this.connection = DatabaseManager.getInstance().getConnection();
+        this.dbManager = DatabaseManager.getInstance();
     }
 
     public boolean setConfig(String key, String value) {
@@ -19,7 +19,8 @@ public class SystemConfigDAO {
                     ON CONFLICT(config_key) DO UPDATE SET config_value = excluded.config_value;
                 """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, key);
             pstmt.setString(2, value);
 
@@ -32,10 +33,33 @@ public class SystemConfigDAO {
         }
     }
 
+    /**
+     * @return every key and value, or null if they could not be read
+     */
+    public Map<String, String> getAllConfig() {
+        String sql = "SELECT config_key, config_value FROM system_config;";
+
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+
+            Map<String, String> config = new HashMap<>();
+            while (rs.next()) {
+                config.put(rs.getString("config_key"), rs.getString("config_value"));
+            }
+            return config;
+        } catch (SQLException e) {
+            System.err.println("Failed to get config");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     public String getConfig(String key) {
         String sql = "SELECT config_value FROM system_config WHERE config_key = ?;";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, key);
             ResultSet rs = pstmt.executeQuery();
 
@@ -49,23 +73,4 @@ public class SystemConfigDAO {
 
         return null;
     }
-
-    public FineScheme getCurrentFineScheme() {
-        String schemeStr = getConfig("FINE_SCHEME");
-
-        if (schemeStr == null) {
-            return FineScheme.FIXED; // Default
-        }
-
-        try {
-            return FineScheme.valueOf(schemeStr);
-        } catch (IllegalArgumentException e) {
-            System.err.println("Invalid fine scheme in config: " + schemeStr);
-            return FineScheme.FIXED; // Default fallback
-        }
-    }
-
-    public boolean setFineScheme(FineScheme scheme) {
-        return setConfig("FINE_SCHEME", scheme.name());
-    }
 }
@@ -0,0 +1,176 @@
+package parkinglotmanagementsystem.main.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A database transaction bound to the current thread.
+ * While it is open every DAO call on this thread runs on the same write
+ * connection, so the work is committed or rolled back as one unit.
+ *
+ * <pre>
+ * try (UnitOfWork uow = DatabaseManager.getInstance().beginUnitOfWork()) {
+ *     ...DAO calls...
+ *     uow.commit();
+ * } // rolled back here unless committed
+ * </pre>
+ *
+ * Beginning a unit of work while one is already open joins it; only the
+ * outermost one commits. If a joined one closes without committing, the
+ * whole transaction is rolled back.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+    private final Transaction transaction;
+    private final boolean owner;
+    private boolean committed;
+    private boolean closed;
+
+    private UnitOfWork(Transaction transaction, boolean owner) {
+        this.transaction = transaction;
+        this.owner = owner;
+    }
+
+    static UnitOfWork begin(Connection writeConnection, Runnable onEnd) throws SQLException {
+        try {
+            writeConnection.setAutoCommit(false);
+        } catch (SQLException e) {
+            writeConnection.close();
+            throw e;
+        }
+        return new UnitOfWork(new Transaction(writeConnection, onEnd), true);
+    }
+
+    UnitOfWork join() {
+        return new UnitOfWork(transaction, false);
+    }
+
+    /**
+     * Connection for DAOs taking part in this unit of work. Closing it does
+     * not end the transaction.
+     */
+    Connection borrowConnection() {
+        return ConnectionPool.wrap(transaction.connection, () -> {
+        });
+    }
+
+    public void commit() throws SQLException {
+        if (closed || committed) {
+            throw new IllegalStateException("Unit of work is already finished");
+        }
+        committed = true;
+
+        if (!owner) {
+            return; // the outermost unit of work commits
+        }
+
+        if (transaction.rollbackOnly) {
+            throw new SQLException("Transaction was marked rollback-only by a nested unit of work");
+        }
+
+        transaction.connection.commit();
+        transaction.completed = true;
+    }
+
+    /**
+     * Runs the action once the transaction has committed, e.g. updating
+     * in-memory state or notifying observers.
+     */
+    public void afterCommit(Runnable action) {
+        transaction.afterCommit.add(action);
+    }
+
+    /**
+     * Runs the action if the transaction is rolled back.
+     */
+    public void afterRollback(Runnable action) {
+        transaction.afterRollback.add(action);
+    }
+
+    public boolean isCommitted() {
+        return committed && (!owner || transaction.completed);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (!committed) {
+            transaction.rollbackOnly = true;
+        }
+
+        if (owner) {
+            transaction.finish();
+        }
+    }
+
+    private static class Transaction {
+
+        private final Connection connection;
+        private final Runnable onEnd;
+        private final List<Runnable> afterCommit;
+        private final List<Runnable> afterRollback;
+        private boolean rollbackOnly;
+        private boolean completed;
+
+        Transaction(Connection connection, Runnable onEnd) {
+            this.connection = connection;
+            this.onEnd = onEnd;
+            this.afterCommit = new ArrayList<>();
+            this.afterRollback = new ArrayList<>();
+        }
+
+        void finish() {
+            boolean unbound = false;
+            try {
+                if (!completed) {
+                    try {
+                        connection.rollback();
+                    } catch (SQLException e) {
+                        System.err.println("Failed to roll back transaction!");
+                        e.printStackTrace();
+                    }
+                }
+
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.err.println("Failed to restore auto-commit!");
+                    e.printStackTrace();
+                }
+
+                // unbind first so hooks run outside the transaction, but keep
+                // holding the writer so hooks see state in commit order
+                onEnd.run();
+                unbound = true;
+                runAll(completed ? afterCommit : afterRollback);
+            } finally {
+                if (!unbound) {
+                    onEnd.run();
+                }
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Failed to release write connection!");
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private static void runAll(List<Runnable> actions) {
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Transaction callback failed!");
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package parkinglotmanagementsystem.main.observer;
+
+/**
+ * A published event as queued by the event bus.
+ */
+public class ParkingEvent {
+
+    private final ParkingEventType eventType;
+    private final Object eventData;
+    private final long timestampMillis;
+
+    public ParkingEvent(ParkingEventType eventType, Object eventData) {
+        this.eventType = eventType;
+        this.eventData = eventData;
+        this.timestampMillis = System.currentTimeMillis();
+    }
+
+    public ParkingEventType getEventType() {
+        return eventType;
+    }
+
+    public Object getEventData() {
+        return eventData;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ParkingEvent[" + eventType + ", " + eventData + "]";
+    }
+}
@@ -0,0 +1,183 @@
+package parkinglotmanagementsystem.main.observer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import parkinglotmanagementsystem.main.util.Constants;
+
+/**
+ * Delivers parking events to listeners asynchronously, so publishers never
+ * wait on listeners.
+ * Each listener has a bounded mailbox; events arriving within the coalesce
+ * window are handed over as one batch, and at most one batch per listener
+ * is in flight at a time. When a mailbox is full the oldest event is
+ * dropped.
+ */
+public class ParkingEventBus {
+
+    private static volatile ParkingEventBus instance;
+
+    private final ScheduledExecutorService dispatcher;
+    private final long coalesceWindowMillis;
+    private final int mailboxCapacity;
+    private final List<Subscription> subscriptions;
+    private final AtomicLong droppedEvents;
+
+    public ParkingEventBus(int dispatcherThreads, long coalesceWindowMillis, int mailboxCapacity) {
+        if (dispatcherThreads < 1 || mailboxCapacity < 1 || coalesceWindowMillis < 0) {
+            throw new IllegalArgumentException("Invalid event bus configuration");
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(dispatcherThreads, r -> {
+            Thread thread = new Thread(r, "event-dispatcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+
+        this.dispatcher = executor;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        this.mailboxCapacity = mailboxCapacity;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.droppedEvents = new AtomicLong();
+    }
+
+    public static ParkingEventBus getInstance() {
+        if (instance == null) {
+            synchronized (ParkingEventBus.class) {
+                if (instance == null) {
+                    instance = new ParkingEventBus(
+                            Constants.EVENT_DISPATCHER_THREADS,
+                            Constants.EVENT_COALESCE_WINDOW_MILLIS,
+                            Constants.EVENT_MAILBOX_CAPACITY);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribes to every event type, delivered on a dispatcher thread.
+     */
+    public void subscribe(ParkingEventListener listener) {
+        subscribe(listener, Runnable::run, EnumSet.allOf(ParkingEventType.class));
+    }
+
+    /**
+     * Subscribes to the given event types. Batches are handed to the
+     * delivery executor, e.g. SwingUtilities::invokeLater for UI listeners.
+     * Subscribing a listener again replaces its earlier subscription.
+     */
+    public void subscribe(ParkingEventListener listener, Executor deliveryExecutor,
+            Set<ParkingEventType> eventTypes) {
+        unsubscribe(listener);
+        subscriptions.add(new Subscription(listener, deliveryExecutor, EnumSet.copyOf(eventTypes)));
+    }
+
+    public void unsubscribe(ParkingEventListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Queues the event for every interested listener and returns at once.
+     */
+    public void publish(ParkingEventType eventType, Object eventData) {
+        ParkingEvent event = new ParkingEvent(eventType, eventData);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.eventTypes.contains(eventType)) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    private class Subscription {
+
+        private final ParkingEventListener listener;
+        private final Executor deliveryExecutor;
+        private final Set<ParkingEventType> eventTypes;
+        private final ArrayDeque<ParkingEvent> mailbox;
+
+        // a flush is scheduled or a batch is being delivered
+        private boolean busy;
+
+        Subscription(ParkingEventListener listener, Executor deliveryExecutor, Set<ParkingEventType> eventTypes) {
+            this.listener = listener;
+            this.deliveryExecutor = deliveryExecutor;
+            this.eventTypes = eventTypes;
+            this.mailbox = new ArrayDeque<>();
+        }
+
+        void offer(ParkingEvent event) {
+            boolean schedule;
+            synchronized (this) {
+                if (mailbox.size() >= mailboxCapacity) {
+                    mailbox.pollFirst();
+                    droppedEvents.incrementAndGet();
+                }
+                mailbox.addLast(event);
+                schedule = !busy;
+                busy = true;
+            }
+            if (schedule) {
+                scheduleFlush();
+            }
+        }
+
+        private void scheduleFlush() {
+            dispatcher.schedule(this::flush, coalesceWindowMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void flush() {
+            List<ParkingEvent> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(mailbox);
+                mailbox.clear();
+            }
+
+            try {
+                deliveryExecutor.execute(() -> deliver(batch));
+            } catch (RuntimeException e) {
+                System.err.println("Failed to hand over parking events!");
+                e.printStackTrace();
+                finishDelivery();
+            }
+        }
+
+        private void deliver(List<ParkingEvent> batch) {
+            try {
+                listener.onParkingEvents(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Parking event listener failed!");
+                e.printStackTrace();
+            } finally {
+                finishDelivery();
+            }
+        }
+
+        private void finishDelivery() {
+            boolean more;
+            synchronized (this) {
+                more = !mailbox.isEmpty();
+                busy = more;
+            }
+            if (more) {
+                scheduleFlush(); // events that arrived during delivery
+            }
+        }
+    }
+}
@@ -1,6 +1,23 @@
 package parkinglotmanagementsystem.main.observer;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public interface ParkingEventListener {
 
     void onParkingEvent(ParkingEventType eventType, Object eventData);
+
+    /**
+     * Receives the events the bus coalesced for this listener. By default
+     * each event type is handled once, with the data of its latest event;
+     * listeners that refresh wholesale can override this to refresh once.
+     */
+    default void onParkingEvents(List<ParkingEvent> events) {
+        Map<ParkingEventType, Object> latest = new LinkedHashMap<>();
+        for (ParkingEvent event : events) {
+            latest.put(event.getEventType(), event.getEventData());
+        }
+        latest.forEach(this::onParkingEvent);
+    }
 }
@@ -9,5 +9,6 @@ public enum ParkingEventType {
     REVENUE_UPDATED, // Total revenue changed
     SPOT_STATUS_CHANGED, // Parking spot became available/occupied
     SPOT_TYPE_CHANGED, // Parking spot type is changed
-    OCCUPANCY_CHANGED // Overall occupancy rate changed
+    OCCUPANCY_CHANGED, // Overall occupancy rate changed
+    TARIFF_CHANGED // Another tariff version became active
 }
@@ -3,16 +3,18 @@ package parkinglotmanagementsystem.main.ui;
 import parkinglotmanagementsystem.admin.controller.AdminController;
 import parkinglotmanagementsystem.fineandpayment.model.Fine;
 import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
+import parkinglotmanagementsystem.main.observer.ParkingEvent;
 import parkinglotmanagementsystem.main.observer.ParkingEventListener;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class AdminPanel extends JPanel implements ParkingEventListener {
 
@@ -21,13 +23,17 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
     // UI Components
     private JComboBox<FineScheme> fineSchemeCombo;
     private JLabel currentSchemeLabel;
+    private JLabel tariffLabel;
     private JLabel occupancyLabel;
     private JLabel revenueLabel;
     private JLabel finesLabel;
     private JTable parkedVehiclesTable;
-    private DefaultTableModel parkedTableModel;
+    private LazyTableModel<Ticket> parkedTableModel;
     private JTable unpaidFinesTable;
-    private DefaultTableModel finesTableModel;
+    private LazyTableModel<Fine> finesTableModel;
+
+    // scheme shown by the last refresh, null until the first one lands
+    private FineScheme currentScheme;
 
     public AdminPanel(AdminController adminController) {
         this.adminController = adminController;
@@ -71,6 +77,18 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
         applyButton.addActionListener(e -> changeFineScheme());
         panel.add(applyButton);
 
+        panel.add(Box.createHorizontalStrut(20));
+
+        panel.add(new JLabel("Tariff:"));
+
+        tariffLabel = new JLabel("-");
+        tariffLabel.setFont(tariffLabel.getFont().deriveFont(Font.BOLD));
+        panel.add(tariffLabel);
+
+        JButton reloadTariffsButton = new JButton("Reload Tariffs");
+        reloadTariffsButton.addActionListener(e -> reloadTariffs());
+        panel.add(reloadTariffsButton);
+
         return panel;
     }
 
@@ -127,12 +145,29 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
         parkedPanel.setBorder(BorderFactory.createTitledBorder("Currently Parked Vehicles"));
 
         String[] parkedColumns = { "Plate", "Spot", "Entry Time" };
-        parkedTableModel = new DefaultTableModel(parkedColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        parkedTableModel = new LazyTableModel<>(parkedColumns,
+                new LazyTableModel.PageSource<Ticket>() {
+                    @Override
+                    public int count() {
+                        return adminController.getCurrentlyParkedCount();
+                    }
+
+                    @Override
+                    public List<Ticket> fetchPage(Ticket after, int skip, int limit) {
+                        return adminController.getCurrentlyParkedVehiclesPage(after, skip, limit);
+                    }
+                },
+                (ticket, column) -> {
+                    switch (column) {
+                        case 0:
+                            return ticket.getPlateNumber();
+                        case 1:
+                            return ticket.getSpotId();
+                        default:
+                            return TimeUtil.formatForDisplay(ticket.getEntryTime());
+                    }
+                },
+                Constants.UI_TABLE_PAGE_SIZE, Constants.UI_TABLE_CACHED_PAGES);
         parkedVehiclesTable = new JTable(parkedTableModel);
         JScrollPane parkedScroll = new JScrollPane(parkedVehiclesTable);
         parkedPanel.add(parkedScroll, BorderLayout.CENTER);
@@ -143,12 +178,29 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
         finesPanel.setBorder(BorderFactory.createTitledBorder("Unpaid Fines"));
 
         String[] finesColumns = { "Plate", "Type", "Amount (RM)" };
-        finesTableModel = new DefaultTableModel(finesColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        finesTableModel = new LazyTableModel<>(finesColumns,
+                new LazyTableModel.PageSource<Fine>() {
+                    @Override
+                    public int count() {
+                        return adminController.getUnpaidFineCount();
+                    }
+
+                    @Override
+                    public List<Fine> fetchPage(Fine after, int skip, int limit) {
+                        return adminController.getUnpaidFinesPage(after, skip, limit);
+                    }
+                },
+                (fine, column) -> {
+                    switch (column) {
+                        case 0:
+                            return fine.getPlateNumber();
+                        case 1:
+                            return fine.getFineType();
+                        default:
+                            return String.format("%.2f", fine.getFineAmount());
+                    }
+                },
+                Constants.UI_TABLE_PAGE_SIZE, Constants.UI_TABLE_CACHED_PAGES);
         unpaidFinesTable = new JTable(finesTableModel);
         JScrollPane finesScroll = new JScrollPane(unpaidFinesTable);
         finesPanel.add(finesScroll, BorderLayout.CENTER);
@@ -169,7 +221,10 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
 
     private void changeFineScheme() {
         FineScheme selectedScheme = (FineScheme) fineSchemeCombo.getSelectedItem();
-        FineScheme currentScheme = adminController.getCurrentFineScheme();
+
+        if (currentScheme == null) {
+            return; // still loading
+        }
 
         if (selectedScheme == currentScheme) {
             JOptionPane.showMessageDialog(this,
@@ -188,39 +243,66 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            boolean success = adminController.changeFineScheme(selectedScheme);
-            if (success) {
-                currentSchemeLabel.setText(selectedScheme.toString());
+            UiTaskExecutor.getInstance().submit(() -> adminController.changeFineScheme(selectedScheme), success -> {
+                if (success) {
+                    currentScheme = selectedScheme;
+                    currentSchemeLabel.setText(selectedScheme.toString());
+                    JOptionPane.showMessageDialog(this,
+                            "Fine scheme changed successfully!",
+                            "Success",
+                            JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            "Failed to change fine scheme!",
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        }
+    }
+
+    private void reloadTariffs() {
+        UiTaskExecutor.getInstance().submit(() -> Optional.ofNullable(adminController.reloadTariffs()), tariff -> {
+            if (tariff.isPresent()) {
+                tariffLabel.setText("v" + tariff.get().getVersion());
                 JOptionPane.showMessageDialog(this,
-                        "Fine scheme changed successfully!",
-                        "Success",
+                        String.format("Tariff version %d is active.\n\n" +
+                                "Existing parked vehicles keep the tariff they entered with.",
+                                tariff.get().getVersion()),
+                        "Tariffs Reloaded",
                         JOptionPane.INFORMATION_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(this,
-                        "Failed to change fine scheme!",
+                        "Failed to reload tariffs!\nThe current tariffs stay in force.",
                         "Error",
                         JOptionPane.ERROR_MESSAGE);
             }
-        }
+        });
     }
 
     public void refresh() {
-        // Update current scheme
-        FineScheme currentScheme = adminController.getCurrentFineScheme();
-        currentSchemeLabel.setText(currentScheme.toString());
-        fineSchemeCombo.setSelectedItem(currentScheme);
-
-        // Update statistics
-        updateStatistics();
+        // gather in the background, a newer refresh supersedes this one
+        UiTaskExecutor.getInstance().submitLatest(this, AdminSnapshot::new, this::applySnapshot);
 
         // Update tables
         updateTables();
     }
 
-    private void updateStatistics() {
-        Map<String, Object> stats = adminController.getOccupancyStats();
-        Map<String, Object> revenueStats = adminController.getRevenueStats();
-        Map<String, Object> fineStats = adminController.getFineStats();
+    private void applySnapshot(AdminSnapshot snapshot) {
+        // Update current scheme
+        currentScheme = snapshot.currentScheme;
+        currentSchemeLabel.setText(snapshot.currentScheme.toString());
+        fineSchemeCombo.setSelectedItem(snapshot.currentScheme);
+        tariffLabel.setText("v" + snapshot.tariffVersion);
+
+        // Update statistics
+        updateStatistics(snapshot);
+    }
+
+    private void updateStatistics(AdminSnapshot snapshot) {
+        Map<String, Object> stats = snapshot.occupancyStats;
+        Map<String, Object> revenueStats = snapshot.revenueStats;
+        Map<String, Object> fineStats = snapshot.fineStats;
 
         String occupancyText = String.format("<html><center>%d / %d spots<br>%.1f%%</center></html>",
                 stats.get("occupiedSpots"),
@@ -240,30 +322,39 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
     }
 
     private void updateTables() {
-        // Update parked vehicles
-        parkedTableModel.setRowCount(0);
-        List<Ticket> parkedVehicles = adminController.getCurrentlyParkedVehicles();
-        for (Ticket ticket : parkedVehicles) {
-            parkedTableModel.addRow(new Object[] {
-                    ticket.getPlateNumber(),
-                    ticket.getSpotId(),
-                    TimeUtil.formatForDisplay(ticket.getEntryTime())
-            });
-        }
+        // only the counts are read here, visible rows are paged in on repaint
+        parkedTableModel.refresh();
+        finesTableModel.refresh();
+    }
 
-        // Update unpaid fines
-        finesTableModel.setRowCount(0);
-        List<Fine> unpaidFines = adminController.getAllUnpaidFines();
-        for (Fine fine : unpaidFines) {
-            finesTableModel.addRow(new Object[] {
-                    fine.getPlateNumber(),
-                    fine.getFineType(),
-                    String.format("%.2f", fine.getFineAmount())
-            });
+    /**
+     * Everything the statistics area shows, read on a worker thread.
+     */
+    private class AdminSnapshot {
+
+        private final FineScheme currentScheme;
+        private final int tariffVersion;
+        private final Map<String, Object> occupancyStats;
+        private final Map<String, Object> revenueStats;
+        private final Map<String, Object> fineStats;
+
+        AdminSnapshot() {
+            this.currentScheme = adminController.getCurrentFineScheme();
+            this.tariffVersion = adminController.getActiveTariff().getVersion();
+            this.occupancyStats = adminController.getOccupancyStats();
+            this.revenueStats = adminController.getRevenueStats();
+            this.fineStats = adminController.getFineStats();
         }
     }
 
     // Observer Pattern Implementation
+    @Override
+    public void onParkingEvents(List<ParkingEvent> events) {
+        // the bus only delivers types we refresh on; a whole exit arrives
+        // as one batch, so refresh once for it
+        refresh();
+    }
+
     @Override
     public void onParkingEvent(ParkingEventType eventType, Object eventData) {
         switch (eventType) {
@@ -273,6 +364,7 @@ public class AdminPanel extends JPanel implements ParkingEventListener {
             case REVENUE_UPDATED:
             case VEHICLE_ENTERED:
             case VEHICLE_EXITED:
+            case TARIFF_CHANGED:
                 refresh();
                 break;
             default:
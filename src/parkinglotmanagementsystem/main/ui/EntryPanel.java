@@ -159,11 +159,20 @@ public class EntryPanel extends JPanel {
       return;
     }
 
+    ParkingSpot suggested = entryController.suggestSpot(selectedType);
+    int suggestedRow = -1;
+
+    double handicappedVehicleRate = entryController.getActiveTariff().getHandicappedVehicleRate();
+
     for (ParkingSpot spot : spots) {
+      if (spot == suggested) {
+        suggestedRow = spotsTableModel.getRowCount();
+      }
+
       double hourlyRate = spot.getHourlyRate();
 
       if (selectedType == VehicleType.HANDICAPPED) {
-        hourlyRate = spot.getSpotType() == SpotType.HANDICAPPED ? 0.0 : 2.0;
+        hourlyRate = spot.getSpotType() == SpotType.HANDICAPPED ? 0.0 : handicappedVehicleRate;
       }
 
       spotsTableModel.addRow(new Object[] {
@@ -174,6 +183,12 @@ public class EntryPanel extends JPanel {
       });
     }
 
+    // preselect the suggested spot, the attendant can still pick another
+    if (suggestedRow != -1) {
+      spotsTable.setRowSelectionInterval(suggestedRow, suggestedRow);
+      spotsTable.scrollRectToVisible(spotsTable.getCellRect(suggestedRow, 0, true));
+    }
+
     resultArea.setText(String.format("Found %d available spots for %s\nSelect a spot and click 'Park Vehicle'",
         spots.size(), selectedType));
 
@@ -216,9 +231,21 @@ public class EntryPanel extends JPanel {
       }
     }
 
-    // park vehicle
-    Ticket ticket = entryController.parkVehicle(plate, vehicleType, spotId);
+    // park vehicle in the background, the button stays off until it is done
+    parkButton.setEnabled(false);
+    UiTaskExecutor.getInstance().submit(
+        () -> entryController.parkVehicle(plate, vehicleType, spotId),
+        ticket -> showParkingResult(ticket, vehicleType),
+        e -> {
+          parkButton.setEnabled(spotsTable.getSelectedRow() != -1);
+          JOptionPane.showMessageDialog(this,
+              "Failed to park vehicle!\n" + e.getMessage(),
+              "Parking Failed",
+              JOptionPane.ERROR_MESSAGE);
+        });
+  }
 
+  private void showParkingResult(Ticket ticket, VehicleType vehicleType) {
     if (ticket != null) {
       // success
       String message = String.format("""
@@ -250,6 +277,7 @@ public class EntryPanel extends JPanel {
       clearForm();
     } else {
       // failed
+      parkButton.setEnabled(spotsTable.getSelectedRow() != -1);
       resultArea.setText("Failed to park vehicle. Please check console for details.");
       JOptionPane.showMessageDialog(this,
           "Failed to park vehicle!\nPlease check if the vehicle is already parked or spot is unavailable.",
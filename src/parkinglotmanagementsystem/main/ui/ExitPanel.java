@@ -1,15 +1,17 @@
 package parkinglotmanagementsystem.main.ui;
 
+import parkinglotmanagementsystem.fineandpayment.model.Bill;
 import parkinglotmanagementsystem.fineandpayment.model.Payment;
 import parkinglotmanagementsystem.fineandpayment.model.PaymentMethod;
 import parkinglotmanagementsystem.main.observer.ParkingEventListener;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
 import parkinglotmanagementsystem.main.util.PlateValidator;
 import parkinglotmanagementsystem.vehicleandticket.controller.ExitController;
+import parkinglotmanagementsystem.vehicleandticket.model.ExitResult;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.Map;
+import java.util.Optional;
 
 public class ExitPanel extends JPanel implements ParkingEventListener {
 
@@ -24,7 +26,7 @@ public class ExitPanel extends JPanel implements ParkingEventListener {
   private JRadioButton cardRadio;
   private JSpinner paymentAmountSpinner;
 
-  private Map<String, Object> currentBill;
+  private Bill currentBill;
 
   public ExitPanel(ExitController exitController) {
     this.exitController = exitController;
@@ -135,27 +137,49 @@ public class ExitPanel extends JPanel implements ParkingEventListener {
       return;
     }
 
-    // Calculate bill
-    currentBill = exitController.calculateBill(plate);
+    // Calculate bill in the background
+    calculateBillButton.setEnabled(false);
+    processPaymentButton.setEnabled(false);
+    UiTaskExecutor.getInstance().submit(
+        () -> exitController.calculateBill(plate),
+        bill -> {
+          calculateBillButton.setEnabled(true);
+          showBill(bill);
+        },
+        e -> {
+          calculateBillButton.setEnabled(true);
+          showBillError(e);
+        });
+  }
 
-    if (currentBill.containsKey("error")) {
-      billArea.setText("ERROR: " + currentBill.get("error"));
-      processPaymentButton.setEnabled(false);
-      JOptionPane.showMessageDialog(this,
-          currentBill.get("error"),
-          "Error",
-          JOptionPane.ERROR_MESSAGE);
-      return;
+  private void showBill(Bill bill) {
+    // the bill is kept and reused for the payment and the receipt
+    currentBill = bill;
+    billArea.setText(exitController.getBillSummary(bill));
+    processPaymentButton.setEnabled(true);
+  }
+
+  private void showBillError(Exception e) {
+    String error;
+    if (e instanceof IllegalArgumentException) {
+      error = "Invalid plate number: " + e.getMessage();
+    } else if (e instanceof IllegalStateException) {
+      error = e.getMessage();
+    } else {
+      error = "Error calculating bill: " + e.getMessage();
     }
 
-    // Display bill
-    String billSummary = exitController.getBillSummary(currentBill);
-    billArea.setText(billSummary);
-    processPaymentButton.setEnabled(true);
+    currentBill = null;
+    billArea.setText("ERROR: " + error);
+    processPaymentButton.setEnabled(false);
+    JOptionPane.showMessageDialog(this,
+        error,
+        "Error",
+        JOptionPane.ERROR_MESSAGE);
   }
 
   private void processPayment() {
-    if (currentBill == null || currentBill.containsKey("error")) {
+    if (currentBill == null) {
       JOptionPane.showMessageDialog(this,
           "Please calculate the bill first!",
           "No Bill",
@@ -164,7 +188,7 @@ public class ExitPanel extends JPanel implements ParkingEventListener {
     }
 
     // store temporarily due to clearForm()
-    Map<String, Object> billDetails = currentBill;
+    Bill bill = currentBill;
 
     // Get payment method
     PaymentMethod paymentMethod = cashRadio.isSelected() ? PaymentMethod.CASH : PaymentMethod.CARD;
@@ -182,19 +206,31 @@ public class ExitPanel extends JPanel implements ParkingEventListener {
       return;
     }
 
-    // Process payment
-    String plate = plateField.getText().trim();
-    Payment payment = exitController.processExit(plate, paymentMethod, paymentAmount);
-
-    if (payment != null) {
+    // Process payment in the background
+    processPaymentButton.setEnabled(false);
+    calculateBillButton.setEnabled(false);
+    UiTaskExecutor.getInstance().submit(
+        () -> Optional.ofNullable(exitController.processExit(bill, paymentMethod, paymentAmount)),
+        result -> {
+          calculateBillButton.setEnabled(true);
+          showPaymentResult(result.orElse(null), bill);
+        },
+        e -> {
+          calculateBillButton.setEnabled(true);
+          processPaymentButton.setEnabled(currentBill != null);
+          billArea.setText("Payment processing failed: " + e.getMessage());
+        });
+  }
 
-      String receipt = exitController.generateReceipt(payment, billDetails);
+  private void showPaymentResult(ExitResult result, Bill bill) {
+    if (result != null) {
+      Payment payment = result.getPayment();
 
       // Clear form
       clearForm();
 
       // Generate the exit receipt
-      billArea.setText(receipt);
+      billArea.setText(exitController.generateReceipt(result, bill));
 
       int isPrintReceipt = JOptionPane.showConfirmDialog(this,
           String.format("Payment successful!\nTotal Paid: RM %.2f\nThank you!\n\nDo you want to print out the receipt?",
@@ -207,6 +243,7 @@ public class ExitPanel extends JPanel implements ParkingEventListener {
       }
 
     } else {
+      processPaymentButton.setEnabled(currentBill != null);
       billArea.setText("Payment processing failed. Please try again.");
       JOptionPane.showMessageDialog(this,
           "Payment processing failed!\nPlease contact support.",
@@ -0,0 +1,188 @@
+package parkinglotmanagementsystem.main.ui;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+import javax.swing.table.AbstractTableModel;
+
+import parkinglotmanagementsystem.main.util.Constants;
+
+/**
+ * Read-only table model that loads rows a page at a time, only when the
+ * table asks for them. Pages are fetched with keyset queries (rows after the
+ * last row of an earlier page) and only a few are kept, so memory and
+ * refresh time follow the visible rows rather than the table size.
+ * Queries run on UiTaskExecutor workers; rows still loading read as empty
+ * and are repainted when their page arrives. A page that failed to load is
+ * not asked for again until a refresh or UI_TABLE_PAGE_RETRY_MILLIS later.
+ * Like any Swing model it must only be used on the EDT.
+ */
+public class LazyTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Supplies the rows of the table, in a fixed order.
+     */
+    public interface PageSource<T> {
+
+        int count();
+
+        /**
+         * Up to limit rows following after (or from the first row if after
+         * is null), once skip rows have been passed over; null if they could
+         * not be read, the page is then retried later.
+         */
+        List<T> fetchPage(T after, int skip, int limit);
+    }
+
+    private final String[] columns;
+    private final PageSource<T> source;
+    private final BiFunction<T, Integer, Object> cellValue;
+    private final int pageSize;
+
+    private int rowCount;
+
+    // last row of every page loaded so far, by page index; a page is
+    // fetched after the nearest known end before it
+    private final TreeMap<Integer, T> pageEnds;
+
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loadingPages;
+
+    // pages whose fetch failed, with the System.nanoTime() to retry them at
+    private final Map<Integer, Long> failedPages;
+
+    // bumped by every refresh so pages fetched before it are dropped
+    private int generation;
+
+    public LazyTableModel(String[] columns, PageSource<T> source,
+            BiFunction<T, Integer, Object> cellValue, int pageSize, int cachedPages) {
+        this.columns = columns.clone();
+        this.source = source;
+        this.cellValue = cellValue;
+        this.pageSize = pageSize;
+        this.pageEnds = new TreeMap<>();
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > cachedPages;
+            }
+        };
+        this.loadingPages = new HashSet<>();
+        this.failedPages = new HashMap<>();
+    }
+
+    /**
+     * Re-reads the row count in the background, then drops every loaded
+     * page; rows are fetched again as the table repaints. The current rows
+     * stay on screen until then. A newer refresh supersedes a pending one.
+     */
+    public void refresh() {
+        UiTaskExecutor.getInstance().submitLatest(this, source::count, count -> {
+            generation++;
+            rowCount = count;
+            pageEnds.clear();
+            pages.clear();
+            loadingPages.clear();
+            failedPages.clear();
+            fireTableDataChanged();
+        });
+    }
+
+    /**
+     * Row object at the index, or null while its page is loading or if the
+     * table shrank since the last refresh.
+     */
+    public T getRow(int rowIndex) {
+        int index = rowIndex / pageSize;
+        List<T> page = pages.get(index);
+        if (page == null) {
+            loadPage(index);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row == null ? null : cellValue.apply(row, columnIndex);
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    private void loadPage(int index) {
+        Long retryAt = failedPages.get(index);
+        if (retryAt != null && System.nanoTime() - retryAt < 0) {
+            return; // failed recently, every repaint would ask again
+        }
+
+        if (!loadingPages.add(index)) {
+            return; // already on its way
+        }
+
+        // scrolling on continues right after the previous page; a jump skips
+        // the pages in between, but still from a row we have seen
+        Map.Entry<Integer, T> anchor = pageEnds.lowerEntry(index);
+        T after = anchor == null ? null : anchor.getValue();
+        int skip = (anchor == null ? index : index - anchor.getKey() - 1) * pageSize;
+        int requestedGeneration = generation;
+
+        UiTaskExecutor.getInstance().submit(() -> fetchPage(index, after, skip), page -> {
+            if (requestedGeneration != generation) {
+                return; // refreshed meanwhile
+            }
+            loadingPages.remove(index);
+            failedPages.remove(index);
+            pages.put(index, page);
+            if (!page.isEmpty()) {
+                pageEnds.put(index, page.get(page.size() - 1));
+            }
+
+            int firstRow = index * pageSize;
+            int lastRow = Math.min(firstRow + pageSize, rowCount) - 1;
+            if (lastRow >= firstRow) {
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        }, e -> {
+            if (requestedGeneration == generation) {
+                loadingPages.remove(index);
+                failedPages.put(index, System.nanoTime() + Constants.UI_TABLE_PAGE_RETRY_MILLIS * 1_000_000L);
+            }
+            System.err.println("Failed to load table page " + index);
+            e.printStackTrace();
+        });
+    }
+
+    private List<T> fetchPage(int index, T after, int skip) {
+        List<T> page = source.fetchPage(after, skip, pageSize);
+        if (page == null) {
+            throw new IllegalStateException("Page source could not read page " + index);
+        }
+        return page;
+    }
+}
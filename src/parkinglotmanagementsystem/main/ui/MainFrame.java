@@ -7,8 +7,12 @@ import parkinglotmanagementsystem.report.controller.ReportController;
 import parkinglotmanagementsystem.vehicleandticket.controller.EntryController;
 import parkinglotmanagementsystem.vehicleandticket.controller.ExitController;
 
+import parkinglotmanagementsystem.main.observer.ParkingEventBus;
+import parkinglotmanagementsystem.main.observer.ParkingEventType;
+
 import javax.swing.*;
 import java.awt.*;
+import java.util.EnumSet;
 
 public class MainFrame extends JFrame {
 
@@ -62,14 +66,22 @@ public class MainFrame extends JFrame {
         parkingLotPanel = new ParkingLotPanel(adminController);
         reportPanel = new ReportPanel(reportController);
 
-        // register observers AFTER panel creation
-        fineManager.addListener(adminPanel);
-        fineManager.addListener(reportPanel);
-        paymentService.addListener(adminPanel);
-        paymentService.addListener(reportPanel);
-        paymentService.addListener(exitPanel);
-        parkingService.addListener(adminPanel);
-        parkingService.addListener(parkingLotPanel);
+        // register observers AFTER panel creation; events are coalesced
+        // off the publishing thread and handed to the panels on the EDT
+        ParkingEventBus eventBus = ParkingEventBus.getInstance();
+        eventBus.subscribe(adminPanel, SwingUtilities::invokeLater, EnumSet.of(
+                ParkingEventType.FINE_GENERATED, ParkingEventType.FINE_PAID,
+                ParkingEventType.PAYMENT_PROCESSED, ParkingEventType.REVENUE_UPDATED,
+                ParkingEventType.VEHICLE_ENTERED, ParkingEventType.VEHICLE_EXITED,
+                ParkingEventType.TARIFF_CHANGED));
+        eventBus.subscribe(reportPanel, SwingUtilities::invokeLater, EnumSet.of(
+                ParkingEventType.FINE_GENERATED, ParkingEventType.FINE_PAID,
+                ParkingEventType.PAYMENT_PROCESSED, ParkingEventType.REVENUE_UPDATED));
+        eventBus.subscribe(exitPanel, SwingUtilities::invokeLater, EnumSet.of(
+                ParkingEventType.PAYMENT_PROCESSED));
+        eventBus.subscribe(parkingLotPanel, SwingUtilities::invokeLater, EnumSet.of(
+                ParkingEventType.SPOT_STATUS_CHANGED, ParkingEventType.SPOT_TYPE_CHANGED,
+                ParkingEventType.TARIFF_CHANGED));
 
         tabbedPane.addTab("Vehicle Entry", entryPanel);
         tabbedPane.addTab("Vehicle Exit", exitPanel);
@@ -111,12 +123,21 @@ public class MainFrame extends JFrame {
     }
 
     private void refreshAllPanels() {
-        entryPanel.refresh();
-        exitPanel.refresh();
-        adminPanel.refresh();
-        parkingLotPanel.refresh();
-        reportPanel.refresh();
-        JOptionPane.showMessageDialog(this, "All panels refreshed successfully!");
+        // the only place the lot is re-read from the database after startup,
+        // the panels refresh once the reload is done
+        UiTaskExecutor.getInstance().submitLatest(this,
+                () -> {
+                    adminController.reloadParkingLot();
+                    return null;
+                },
+                reloaded -> {
+                    entryPanel.refresh();
+                    exitPanel.refresh();
+                    adminPanel.refresh();
+                    parkingLotPanel.refresh();
+                    reportPanel.refresh();
+                    JOptionPane.showMessageDialog(this, "All panels refreshed successfully!");
+                });
     }
 
 }
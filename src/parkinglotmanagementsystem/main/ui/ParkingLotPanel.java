@@ -2,7 +2,10 @@ package parkinglotmanagementsystem.main.ui;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -13,12 +16,15 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.AbstractTableModel;
 
 import parkinglotmanagementsystem.admin.controller.AdminController;
+import parkinglotmanagementsystem.main.observer.ParkingEvent;
+import parkinglotmanagementsystem.main.observer.ParkingEventBus;
 import parkinglotmanagementsystem.main.observer.ParkingEventListener;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
+import parkinglotmanagementsystem.parking.model.SpotChange;
 import parkinglotmanagementsystem.parking.model.SpotStatus;
 import parkinglotmanagementsystem.parking.model.SpotType;
 
@@ -27,11 +33,14 @@ public class ParkingLotPanel extends JPanel implements ParkingEventListener {
 
   // UI Components
   private JTable spotsTable;
-  private DefaultTableModel spotsTableModel;
+  private SpotTableModel spotsTableModel;
   private JLabel spotTypeLabel;
   private JComboBox<SpotType> spotTypeCombo;
   private JButton spotTypeButton;
 
+  // dropped event count of the bus when the last batch arrived
+  private long lastDroppedEvents;
+
   public ParkingLotPanel(AdminController adminController) {
     this.adminController = adminController;
     initializeUI();
@@ -54,13 +63,7 @@ public class ParkingLotPanel extends JPanel implements ParkingEventListener {
     JPanel panel = new JPanel(new BorderLayout());
     panel.setBorder(BorderFactory.createTitledBorder("Parking Spots"));
 
-    String[] columns = { "Spot ID", "Floor", "Type", "Rate (RM/hr)", "Status", "Plate Number" };
-    spotsTableModel = new DefaultTableModel(columns, 0) {
-      @Override
-      public boolean isCellEditable(int row, int column) {
-        return false;
-      }
-    };
+    spotsTableModel = new SpotTableModel();
 
     spotsTable = new JTable(spotsTableModel);
     spotsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -129,42 +132,147 @@ public class ParkingLotPanel extends JPanel implements ParkingEventListener {
     SpotType spotType = (SpotType) spotTypeCombo.getSelectedItem();
     String spotId = (String) spotsTableModel.getValueAt(selectedRow, 0);
 
-    boolean isSuccess = adminController.updateSpotType(spotId, spotType);
+    // the table itself is updated by the spot event, only report failures
+    UiTaskExecutor.getInstance().submit(
+        () -> adminController.updateSpotType(spotId, spotType),
+        isSuccess -> {
+          if (!isSuccess) {
+            JOptionPane
+                .showMessageDialog(this,
+                    "Failed to update the spot type of Parking Spot " + spotId + ".\nPlease try again later.");
+
+          }
+        });
+  }
 
-    if (!isSuccess) {
-      JOptionPane
-          .showMessageDialog(this,
-              "Failed to update the spot type of Parking Spot " + spotId + ".\nPlease try again later.");
+  /**
+   * Rebuilds the table from the lot. Only needed when the lot itself is
+   * reloaded, spot changes arrive as events and update their row in place.
+   */
+  public void refresh() {
+    spotsTableModel.setSpots(adminController.getParkingLot().findAllSpots());
+  }
 
+  private void spotChanged(SpotChange change) {
+    int row = spotsTableModel.spotUpdated(change.getSpotId());
+    if (row != -1 && row == spotsTable.getSelectedRow()) {
+      onSpotRowSelect(); // the selected spot may no longer be editable
     }
   }
 
-  public void refresh() {
-    // clear table
-    spotsTableModel.setRowCount(0);
+  /**
+   * Reads cells straight from the in-memory spots, so a refresh builds no
+   * rows and only the visible cells are ever formatted.
+   */
+  private static class SpotTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = { "Spot ID", "Floor", "Type", "Rate (RM/hr)", "Status", "Plate Number" };
+
+    private List<ParkingSpot> spots = new ArrayList<>();
+    private Map<String, Integer> rowBySpotId = new HashMap<>();
+
+    void setSpots(List<ParkingSpot> spots) {
+      Map<String, Integer> rows = new HashMap<>();
+      for (int row = 0; row < spots.size(); row++) {
+        rows.put(spots.get(row).getSpotId(), row);
+      }
+      this.spots = spots;
+      this.rowBySpotId = rows;
+      fireTableDataChanged();
+    }
+
+    /**
+     * Repaints the row of the spot.
+     *
+     * @return the row, or -1 if the spot is not in the table
+     */
+    int spotUpdated(String spotId) {
+      Integer row = rowBySpotId.get(spotId);
+      if (row == null) {
+        return -1;
+      }
+      fireTableRowsUpdated(row, row);
+      return row;
+    }
+
+    void allRowsUpdated() {
+      if (!spots.isEmpty()) {
+        fireTableRowsUpdated(0, spots.size() - 1);
+      }
+    }
 
-    List<ParkingSpot> spots = adminController.getParkingLot().findAllSpots();
+    @Override
+    public int getRowCount() {
+      return spots.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return COLUMNS.length;
+    }
 
-    for (ParkingSpot spot : spots) {
-      spotsTableModel.addRow(new Object[] {
-          spot.getSpotId(),
-          spot.getFloorNumber(),
-          spot.getSpotType(),
-          String.format("%.2f", spot.getHourlyRate()),
-          spot.getStatus(),
-          spot.getCurrentPlate(),
-      });
+    @Override
+    public String getColumnName(int column) {
+      return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+      ParkingSpot spot = spots.get(rowIndex);
+      switch (columnIndex) {
+        case 0:
+          return spot.getSpotId();
+        case 1:
+          return spot.getFloorNumber();
+        case 2:
+          return spot.getSpotType();
+        case 3:
+          return String.format("%.2f", spot.getHourlyRate());
+        case 4:
+          return spot.getStatus();
+        default:
+          return spot.getCurrentPlate();
+      }
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+      return false;
     }
   }
 
   // Observer Pattern Implementation
+  @Override
+  public void onParkingEvents(List<ParkingEvent> events) {
+    long droppedEvents = ParkingEventBus.getInstance().getDroppedEventCount();
+    if (droppedEvents != lastDroppedEvents) {
+      // a spot change may be lost; cells read the live spots, so
+      // repainting every row is enough to catch up
+      lastDroppedEvents = droppedEvents;
+      spotsTableModel.allRowsUpdated();
+      onSpotRowSelect();
+      return;
+    }
+
+    // every event names a different spot, so none may be coalesced away
+    for (ParkingEvent event : events) {
+      onParkingEvent(event.getEventType(), event.getEventData());
+    }
+  }
+
   @Override
   public void onParkingEvent(ParkingEventType eventType, Object eventData) {
     switch (eventType) {
-      case VEHICLE_ENTERED:
-      case VEHICLE_EXITED:
+      case SPOT_STATUS_CHANGED:
       case SPOT_TYPE_CHANGED:
-        refresh();
+        if (eventData instanceof SpotChange) {
+          spotChanged((SpotChange) eventData);
+        }
+        break;
+      case TARIFF_CHANGED:
+        // every spot was repriced
+        spotsTableModel.allRowsUpdated();
+        onSpotRowSelect();
         break;
       default:
         break;
@@ -1,5 +1,6 @@
 package parkinglotmanagementsystem.main.ui;
 
+import parkinglotmanagementsystem.main.observer.ParkingEvent;
 import parkinglotmanagementsystem.main.observer.ParkingEventListener;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
 import parkinglotmanagementsystem.report.controller.ReportController;
@@ -7,9 +8,16 @@ import parkinglotmanagementsystem.report.controller.ReportController;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
@@ -59,6 +67,8 @@ public class ReportPanel extends JPanel implements ParkingEventListener {
                 "System Summary",
                 "Occupancy Report",
                 "Revenue Report",
+                "Daily Revenue",
+                "Hourly Revenue (Today)",
                 "Fine Report",
                 "Currently Parked Vehicles",
         };
@@ -99,43 +109,50 @@ public class ReportPanel extends JPanel implements ParkingEventListener {
         printButton.addActionListener(e -> printReport());
         panel.add(printButton);
 
+        JButton exportButton = new JButton("Export Payments (CSV)");
+        exportButton.addActionListener(e -> exportPayments());
+        panel.add(exportButton);
+
         return panel;
     }
 
     private void generateReport() {
         String selectedReport = (String) reportTypeCombo.getSelectedItem();
-        String report = "";
-
-        try {
-            switch (selectedReport) {
-                case "System Summary":
-                    report = reportController.generateSystemSummary();
-                    break;
-                case "Occupancy Report":
-                    report = reportController.generateOccupancyReport();
-                    break;
-                case "Revenue Report":
-                    report = reportController.generateRevenueReport();
-                    break;
-                case "Fine Report":
-                    report = reportController.generateFineReport();
-                    break;
-                case "Currently Parked Vehicles":
-                    report = reportController.generateCurrentlyParkedReport();
-                    break;
-                default:
-                    report = "Unknown report type";
-            }
 
-            reportArea.setText(report);
-            reportArea.setCaretPosition(0); // Scroll to top
+        // a newer request for this panel supersedes one still running
+        UiTaskExecutor.getInstance().submitLatest(this,
+                () -> buildReport(selectedReport),
+                report -> {
+                    reportArea.setText(report);
+                    reportArea.setCaretPosition(0); // Scroll to top
+                },
+                e -> {
+                    reportArea.setText("Error generating report:\n" + e.getMessage());
+                    JOptionPane.showMessageDialog(this,
+                            "Error generating report: " + e.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                });
+    }
 
-        } catch (Exception e) {
-            reportArea.setText("Error generating report:\n" + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                    "Error generating report: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
+    private String buildReport(String selectedReport) {
+        switch (selectedReport) {
+            case "System Summary":
+                return reportController.generateSystemSummary();
+            case "Occupancy Report":
+                return reportController.generateOccupancyReport();
+            case "Revenue Report":
+                return reportController.generateRevenueReport();
+            case "Daily Revenue":
+                return reportController.generateDailyRevenueReport();
+            case "Hourly Revenue (Today)":
+                return reportController.generateHourlyRevenueReport();
+            case "Fine Report":
+                return reportController.generateFineReport();
+            case "Currently Parked Vehicles":
+                return reportController.generateCurrentlyParkedReport();
+            default:
+                return "Unknown report type";
         }
     }
 
@@ -161,6 +178,41 @@ public class ReportPanel extends JPanel implements ParkingEventListener {
         }
     }
 
+    private void exportPayments() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("payments.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = chooser.getSelectedFile();
+        UiTaskExecutor.getInstance().submit(
+                () -> exportPaymentsTo(file),
+                exported -> showExportResult(file, exported));
+    }
+
+    private boolean exportPaymentsTo(File file) {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            return reportController.exportPaymentsCsv(writer);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void showExportResult(File file, boolean exported) {
+        if (exported) {
+            JOptionPane.showMessageDialog(this,
+                    "Payments exported to " + file.getAbsolutePath(),
+                    "Export Success",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this,
+                    "Error exporting payments to " + file.getAbsolutePath(),
+                    "Export Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     public void refresh() {
         // Auto-regenerate current report if one is displayed
         if (!reportArea.getText().equals("Select a report type and click 'Generate Report' to view.")) {
@@ -169,6 +221,12 @@ public class ReportPanel extends JPanel implements ParkingEventListener {
     }
 
     // Observer Pattern Implementation
+    @Override
+    public void onParkingEvents(List<ParkingEvent> events) {
+        // the bus only delivers report-relevant types, regenerate once per batch
+        refresh();
+    }
+
     @Override
     public void onParkingEvent(ParkingEventType eventType, Object eventData) {
         switch (eventType) {
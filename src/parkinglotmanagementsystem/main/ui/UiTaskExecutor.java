@@ -0,0 +1,153 @@
+package parkinglotmanagementsystem.main.ui;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs controller calls off the Event Dispatch Thread and hands the results
+ * back to it, so database work never freezes the GUI.
+ * Work submitted under a key supersedes earlier work under the same key: a
+ * superseded task that has not started is skipped, and the result of one
+ * already running is dropped, so only the latest refresh reaches the UI.
+ */
+public class UiTaskExecutor {
+
+    private static volatile UiTaskExecutor instance;
+
+    private final ExecutorService workers;
+    private final Map<Object, UiTask<?>> latestByKey;
+
+    public UiTaskExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ui-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.latestByKey = new ConcurrentHashMap<>();
+    }
+
+    public static UiTaskExecutor getInstance() {
+        if (instance == null) {
+            synchronized (UiTaskExecutor.class) {
+                if (instance == null) {
+                    instance = new UiTaskExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Runs the work in the background and passes its result to onSuccess on
+     * the EDT. Failures are logged.
+     */
+    public <T> UiTask<T> submit(Callable<T> work, Consumer<? super T> onSuccess) {
+        return submit(work, onSuccess, UiTaskExecutor::logFailure);
+    }
+
+    /**
+     * Runs the work in the background; onSuccess or onFailure is then called
+     * on the EDT unless the task was cancelled first.
+     */
+    public <T> UiTask<T> submit(Callable<T> work, Consumer<? super T> onSuccess,
+            Consumer<? super Exception> onFailure) {
+        UiTask<T> task = new UiTask<>(null, work, onSuccess, onFailure);
+        workers.execute(task);
+        return task;
+    }
+
+    /**
+     * Like submit, but cancels any task still pending under the same key,
+     * e.g. an older refresh of the same panel.
+     */
+    public <T> UiTask<T> submitLatest(Object key, Callable<T> work, Consumer<? super T> onSuccess) {
+        return submitLatest(key, work, onSuccess, UiTaskExecutor::logFailure);
+    }
+
+    public <T> UiTask<T> submitLatest(Object key, Callable<T> work, Consumer<? super T> onSuccess,
+            Consumer<? super Exception> onFailure) {
+        UiTask<T> task = new UiTask<>(key, work, onSuccess, onFailure);
+        UiTask<?> previous = latestByKey.put(key, task);
+        if (previous != null) {
+            previous.cancel();
+        }
+        workers.execute(task);
+        return task;
+    }
+
+    private static void logFailure(Exception e) {
+        System.err.println("Background UI task failed!");
+        e.printStackTrace();
+    }
+
+    /**
+     * A submitted task. Cancelling it from the EDT guarantees its callbacks
+     * will not run.
+     */
+    public class UiTask<T> implements Runnable {
+
+        private final Object key;
+        private final Callable<T> work;
+        private final Consumer<? super T> onSuccess;
+        private final Consumer<? super Exception> onFailure;
+        private volatile boolean cancelled;
+
+        private UiTask(Object key, Callable<T> work, Consumer<? super T> onSuccess,
+                Consumer<? super Exception> onFailure) {
+            this.key = key;
+            this.work = work;
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                finish();
+                return;
+            }
+
+            T result;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    finish();
+                    if (!cancelled) {
+                        onFailure.accept(e);
+                    }
+                });
+                return;
+            }
+
+            SwingUtilities.invokeLater(() -> {
+                finish();
+                if (!cancelled) {
+                    onSuccess.accept(result);
+                }
+            });
+        }
+
+        private void finish() {
+            if (key != null) {
+                latestByKey.remove(key, this);
+            }
+        }
+    }
+}
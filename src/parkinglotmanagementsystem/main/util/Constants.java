@@ -5,6 +5,37 @@ public class Constants {
     // database configuration
     public static final String DB_FILE = "parking_lot.db";
     public static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
+    public static final int DB_READER_POOL_SIZE = 4;
+    public static final long DB_BORROW_TIMEOUT_MILLIS = 5000;
+    public static final int DB_FETCH_SIZE = 500;
+
+    // database storage profile (WAL + NORMAL keeps commits crash-safe without an fsync per commit)
+    public static final String DB_JOURNAL_MODE = "WAL";
+    public static final String DB_SYNCHRONOUS = "NORMAL";
+    public static final int DB_CACHE_SIZE_KIB = 16 * 1024;
+    public static final long DB_MMAP_SIZE_BYTES = 64L * 1024 * 1024;
+    public static final String DB_TEMP_STORE = "MEMORY";
+    public static final int DB_BUSY_TIMEOUT_MILLIS = 5000;
+    public static final int DB_WAL_AUTOCHECKPOINT_PAGES = 1000;
+    public static final long DB_CHECKPOINT_INTERVAL_MILLIS = 30_000;
+    public static final long DB_CHECKPOINT_IDLE_MILLIS = 5_000;
+
+    // event bus configuration
+    public static final int EVENT_DISPATCHER_THREADS = 2;
+    public static final long EVENT_COALESCE_WINDOW_MILLIS = 100;
+    public static final int EVENT_MAILBOX_CAPACITY = 256;
+
+    // bill quotes reused by repeated exit lookups
+    public static final long BILL_QUOTE_TTL_MILLIS = 10_000;
+    public static final int BILL_QUOTE_CACHE_SIZE = 1_000;
+
+    // registered vehicles kept in memory, least recently used dropped first
+    public static final int VEHICLE_CACHE_SIZE = 10_000;
+
+    // lazily paged tables
+    public static final int UI_TABLE_PAGE_SIZE = 100;
+    public static final int UI_TABLE_CACHED_PAGES = 10;
+    public static final long UI_TABLE_PAGE_RETRY_MILLIS = 5_000;
 
     // parking lot configuration
     public static final int TOTAL_FLOORS = 5;
@@ -17,16 +48,31 @@ public class Constants {
     public static final int HANDICAPPED_SPOTS_PER_ROW = 1;
     public static final int RESERVED_SPOTS_PER_ROW = 1;
 
-    // fine configuration
+    // fine configuration, the defaults of tariff version 1
     public static final long OVERSTAY_THRESHOLD_HOURS = 24;
     public static final double FIXED_FINE_AMOUNT = 50.0;
     public static final double HOURLY_FINE_RATE = 20.0;
+    public static final int FINE_TARIFF_HORIZON_HOURS = 7 * 24; // hours tabulated per fine strategy
+
+    // background overstay sweep over parked vehicles
+    public static final long OVERSTAY_SWEEP_INTERVAL_MILLIS = 60 * 60 * 1000;
+    public static final int OVERSTAY_SWEEP_BATCH_SIZE = 500;
 
     // progressive fine tiers
     public static final double PROGRESSIVE_TIER_1 = 50.0; // 24-48 hours
     public static final double PROGRESSIVE_TIER_2 = 150.0; // 48-72 hours (50 + 100)
     public static final double PROGRESSIVE_TIER_3 = 300.0; // 72-96 hours (50 + 100 + 150)
     public static final double PROGRESSIVE_TIER_4 = 500.0; // 96+ hours (50 + 100 + 150 + 200)
+    public static final long PROGRESSIVE_TIER_HOURS = 24; // length of each tier
+
+    // handicapped vehicles outside handicapped spots
+    public static final double HANDICAPPED_VEHICLE_RATE = 2.0;
+
+    // tariff locked by tickets issued before tariffs were versioned
+    public static final int DEFAULT_TARIFF_VERSION = 1;
+
+    // revenue trend reports
+    public static final int REVENUE_TREND_DAYS = 30;
 
     // plate number validation
     public static final String PLATE_PATTERN = "^[A-Z]{3}\\d{4}$";
@@ -3,18 +3,22 @@ package parkinglotmanagementsystem.parking.dao;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.ResultCursor;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.parking.model.SpotStatus;
 import parkinglotmanagementsystem.parking.model.SpotType;
 
 public class ParkingSpotDAO {
 
-    private Connection connection;
+    private DatabaseManager dbManager;
 
     public ParkingSpotDAO() {
-        this.connection = DatabaseManager.getInstance().getConnection();
+        this.dbManager = DatabaseManager.getInstance();
     }
 
     public boolean insertSpot(ParkingSpot spot) {
@@ -24,7 +28,8 @@ public class ParkingSpotDAO {
                     VALUES (?, ?, ?, ?, ?, ?, ?, ?);
                 """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, spot.getSpotId());
             pstmt.setInt(2, spot.getFloorNumber());
             pstmt.setInt(3, spot.getRowNumber());
@@ -50,7 +55,8 @@ public class ParkingSpotDAO {
                     WHERE spot_id = ?;
                 """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, spot.getFloorNumber());
             pstmt.setInt(2, spot.getRowNumber());
             pstmt.setInt(3, spot.getSpotNumber());
@@ -69,6 +75,62 @@ public class ParkingSpotDAO {
         }
     }
 
+    /**
+     * Changes the type and rate of a spot, but only while it is free.
+     */
+    public boolean updateSpotType(String spotId, SpotType spotType, double hourlyRate) {
+        String sql = """
+                    UPDATE parking_spots
+                    SET spot_type = ?, hourly_rate = ?
+                    WHERE spot_id = ? AND is_occupied = 0;
+                """;
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, spotType.name());
+            pstmt.setDouble(2, hourlyRate);
+            pstmt.setString(3, spotId);
+
+            int rowsAffected = pstmt.executeUpdate();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            System.err.println("Failed to update spot type: " + spotId);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Sets every spot's hourly rate from the rate of its type.
+     */
+    public boolean updateHourlyRates(Map<SpotType, Double> hourlyRates) {
+        String sql = """
+                    UPDATE parking_spots
+                    SET hourly_rate = CASE spot_type
+                        WHEN 'COMPACT' THEN ?
+                        WHEN 'REGULAR' THEN ?
+                        WHEN 'HANDICAPPED' THEN ?
+                        WHEN 'RESERVED' THEN ?
+                        ELSE hourly_rate
+                    END;
+                """;
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDouble(1, hourlyRates.get(SpotType.COMPACT));
+            pstmt.setDouble(2, hourlyRates.get(SpotType.REGULAR));
+            pstmt.setDouble(3, hourlyRates.get(SpotType.HANDICAPPED));
+            pstmt.setDouble(4, hourlyRates.get(SpotType.RESERVED));
+
+            pstmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Failed to update hourly rates");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     public boolean updateSpotStatus(String spotId, SpotStatus status, String plateNumber) {
         String sql = """
                     UPDATE parking_spots
@@ -76,7 +138,8 @@ public class ParkingSpotDAO {
                     WHERE spot_id = ?;
                 """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, status == SpotStatus.OCCUPIED ? 1 : 0);
             pstmt.setString(2, plateNumber);
             pstmt.setString(3, spotId);
@@ -90,10 +153,44 @@ public class ParkingSpotDAO {
         }
     }
 
+    /**
+     * Occupies the spot only if it is still free and still of the type the
+     * caller checked the vehicle against, so two lanes can never claim the
+     * same spot and a type change cannot slip in between.
+     *
+     * @return the claimed spot, or null if it does not exist, is occupied or
+     *         changed type
+     */
+    public ParkingSpot claimSpot(String spotId, String plateNumber, SpotType spotType) {
+        String sql = """
+                    UPDATE parking_spots
+                    SET is_occupied = 1, current_plate = ?
+                    WHERE spot_id = ? AND spot_type = ? AND is_occupied = 0
+                    RETURNING *;
+                """;
+
+        try (Connection conn = dbManager.getWriteConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, plateNumber);
+            pstmt.setString(2, spotId);
+            pstmt.setString(3, spotType.name());
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                return extractSpotFromResultSet(rs);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to claim spot: " + spotId);
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     public ParkingSpot findSpotById(String spotId) {
         String sql = "SELECT * FROM parking_spots WHERE spot_id = ?;";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, spotId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -116,7 +213,8 @@ public class ParkingSpotDAO {
 
         List<ParkingSpot> spots = new ArrayList<>();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, spotType.name());
             ResultSet rs = pstmt.executeQuery();
 
@@ -140,7 +238,8 @@ public class ParkingSpotDAO {
 
         List<ParkingSpot> spots = new ArrayList<>();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, floorNumber);
             ResultSet rs = pstmt.executeQuery();
 
@@ -156,28 +255,35 @@ public class ParkingSpotDAO {
     }
 
     public List<ParkingSpot> getAllSpots() {
-        String sql = "SELECT * FROM parking_spots ORDER BY floor_number, row_number, spot_number;";
-
         List<ParkingSpot> spots = new ArrayList<>();
+        forEachSpot(Constants.DB_FETCH_SIZE, spots::add);
+        return spots;
+    }
 
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Visits every spot one at a time in floor, row, spot order.
+     *
+     * @return false if the query failed
+     */
+    public boolean forEachSpot(int fetchSize, Consumer<? super ParkingSpot> visitor) {
+        String sql = "SELECT * FROM parking_spots ORDER BY floor_number, row_number, spot_number;";
 
-            while (rs.next()) {
-                spots.add(extractSpotFromResultSet(rs));
-            }
+        try (Connection conn = dbManager.getReadConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultCursor.forEach(pstmt, fetchSize, this::extractSpotFromResultSet, visitor);
+            return true;
         } catch (SQLException e) {
             System.err.println("Failed to get all spots");
             e.printStackTrace();
+            return false;
         }
-
-        return spots;
     }
 
     public int getOccupiedCount() {
         String sql = "SELECT COUNT(*) FROM parking_spots WHERE is_occupied = 1;";
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
             if (rs.next()) {
@@ -194,7 +300,8 @@ public class ParkingSpotDAO {
     public int getTotalCount() {
         String sql = "SELECT COUNT(*) FROM parking_spots;";
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dbManager.getReadConnection();
+                Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
 
             if (rs.next()) {
@@ -1,60 +1,303 @@
 package parkinglotmanagementsystem.parking.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * A floor of the lot with a lock-free index of its free spots.
+ * Spots are only added while the lot is being built; after that claims,
+ * releases and type changes update the bitmaps and counters atomically.
+ */
 public class Floor {
 
+    private static final int TYPE_COUNT = SpotType.values().length;
+
     private int floorNumber;
-    private List<ParkingSpot> spots;
+    private ParkingLot parkingLot; // null for a standalone floor
+
+    private volatile ParkingSpot[] spots;
+    private volatile int spotCount;
+
+    // free spots per type (indexed by SpotType.ordinal()), bit i is spots[i]
+    private volatile AtomicLongArray[] freeBits;
+
+    // per type: no free bit below this word, so searches can start there
+    // (low 32 bits); every setBit bumps the stamp in the high 32 bits so a
+    // search cannot move the hint past a spot released behind it
+    private final AtomicLong[] firstFreeWord;
+
+    // counters indexed by SpotType.ordinal()
+    private final AtomicIntegerArray totalByType;
+    private final AtomicIntegerArray occupiedByType;
+    private final AtomicInteger occupiedCount;
 
     public Floor(int floorNumber) {
+        this(floorNumber, null);
+    }
+
+    Floor(int floorNumber, ParkingLot parkingLot) {
         this.floorNumber = floorNumber;
-        this.spots = new ArrayList<>();
+        this.parkingLot = parkingLot;
+        this.spots = new ParkingSpot[64];
+        this.freeBits = new AtomicLongArray[TYPE_COUNT];
+        this.firstFreeWord = new AtomicLong[TYPE_COUNT];
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            freeBits[type] = new AtomicLongArray(1);
+            firstFreeWord[type] = new AtomicLong();
+        }
+        this.totalByType = new AtomicIntegerArray(TYPE_COUNT);
+        this.occupiedByType = new AtomicIntegerArray(TYPE_COUNT);
+        this.occupiedCount = new AtomicInteger();
     }
 
-    public void addSpot(ParkingSpot spot) {
-        if (spot.getFloorNumber() == this.floorNumber) {
-            this.spots.add(spot);
-        } else {
+    public synchronized void addSpot(ParkingSpot spot) {
+        if (spot.getFloorNumber() != this.floorNumber) {
             throw new IllegalArgumentException(
                     "Spot floor number does not match this floor: " + spot.getSpotId());
         }
+
+        int index = spotCount;
+        ensureCapacity(index + 1);
+        spots[index] = spot;
+        spotCount = index + 1;
+        spot.attachTo(this, index);
+
+        SpotType spotType = spot.getSpotType();
+        totalByType.incrementAndGet(spotType.ordinal());
+        if (spot.isAvailable()) {
+            setBit(spotType, index);
+        } else {
+            occupiedByType.incrementAndGet(spotType.ordinal());
+            occupiedCount.incrementAndGet();
+        }
+
+        if (parkingLot != null) {
+            parkingLot.spotAdded(spotType, spot.isAvailable());
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > spots.length) {
+            spots = Arrays.copyOf(spots, Math.max(capacity, spots.length * 2));
+        }
+
+        int words = (spots.length + 63) >>> 6;
+        if (words > freeBits[0].length()) {
+            AtomicLongArray[] grown = new AtomicLongArray[TYPE_COUNT];
+            for (int type = 0; type < TYPE_COUNT; type++) {
+                grown[type] = new AtomicLongArray(words);
+                for (int word = 0; word < freeBits[type].length(); word++) {
+                    grown[type].set(word, freeBits[type].get(word));
+                }
+            }
+            freeBits = grown;
+        }
+    }
+
+    // Called by spots on this floor after a successful state change
+
+    void spotOccupied(int index, SpotType spotType) {
+        clearBit(spotType, index);
+        occupiedByType.incrementAndGet(spotType.ordinal());
+        occupiedCount.incrementAndGet();
+        if (parkingLot != null) {
+            parkingLot.spotOccupied(spotType);
+        }
+    }
+
+    void spotReleased(int index, SpotType spotType) {
+        occupiedByType.decrementAndGet(spotType.ordinal());
+        occupiedCount.decrementAndGet();
+        setBit(spotType, index);
+        if (parkingLot != null) {
+            parkingLot.spotReleased(spotType);
+        }
+    }
+
+    void spotTypeChanged(int index, SpotType oldType, SpotType newType, boolean occupied) {
+        totalByType.decrementAndGet(oldType.ordinal());
+        totalByType.incrementAndGet(newType.ordinal());
+        if (occupied) {
+            occupiedByType.decrementAndGet(oldType.ordinal());
+            occupiedByType.incrementAndGet(newType.ordinal());
+        } else {
+            clearBit(oldType, index);
+            setBit(newType, index);
+        }
+        if (parkingLot != null) {
+            parkingLot.spotTypeChanged(oldType, newType, occupied);
+        }
+    }
+
+    private void setBit(SpotType spotType, int index) {
+        long mask = 1L << index;
+        int word = index >>> 6;
+        freeBits[spotType.ordinal()].getAndAccumulate(word, mask, (bits, bit) -> bits | bit);
+
+        AtomicLong hint = firstFreeWord[spotType.ordinal()];
+        while (true) {
+            long current = hint.get();
+            long stamp = (current >>> 32) + 1;
+            long next = (stamp << 32) | Math.min((int) current, word);
+            if (hint.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private void clearBit(SpotType spotType, int index) {
+        long mask = ~(1L << index);
+        freeBits[spotType.ordinal()].getAndAccumulate(index >>> 6, mask, (word, bits) -> word & bits);
+    }
+
+    /**
+     * Index of the first free spot of the type at or after from, or -1.
+     */
+    private int nextFreeIndex(SpotType spotType, int from) {
+        AtomicLongArray bits = freeBits[spotType.ordinal()];
+        AtomicLong hint = firstFreeWord[spotType.ordinal()];
+        long hintValue = hint.get();
+        int count = spotCount;
+
+        int word = from >>> 6;
+        long current;
+        if ((int) hintValue > word) {
+            word = (int) hintValue;
+            current = word < bits.length() ? bits.get(word) : 0;
+        } else {
+            current = word < bits.length() ? bits.get(word) & (-1L << from) : 0;
+        }
+
+        while (current == 0 && word < bits.length()) {
+            if (++word < bits.length()) {
+                current = bits.get(word);
+            }
+        }
+
+        // everything before word was empty; only a full search may move the hint
+        if (from == 0 && word > (int) hintValue) {
+            hint.compareAndSet(hintValue, (hintValue & 0xFFFFFFFF00000000L) | word);
+        }
+
+        if (current == 0) {
+            return -1;
+        }
+        int index = (word << 6) + Long.numberOfTrailingZeros(current);
+        return index < count ? index : -1;
+    }
+
+    /**
+     * First free spot of the given type in floor, row, spot order.
+     *
+     * @return the spot, or null if this floor has none free
+     */
+    public ParkingSpot nextAvailableSpot(SpotType spotType) {
+        int index = nextFreeIndex(spotType, 0);
+        return index < 0 ? null : spots[index];
+    }
+
+    /**
+     * Claims the first free spot of the given type. A spot another lane
+     * wins in the meantime is skipped, so this never blocks or retries the
+     * same spot.
+     *
+     * @return the claimed spot, or null if none could be claimed
+     */
+    public ParkingSpot claimNextAvailableSpot(SpotType spotType, String plateNumber) {
+        ParkingSpot[] current = spots;
+        for (int index = nextFreeIndex(spotType, 0); index >= 0; index = nextFreeIndex(spotType, index + 1)) {
+            ParkingSpot spot = current[index];
+            if (spot.tryOccupy(plateNumber)) {
+                return spot;
+            }
+        }
+        return null;
+    }
+
+    public boolean hasAvailableSpot(SpotType spotType) {
+        return nextFreeIndex(spotType, 0) >= 0;
+    }
+
+    public int getAvailableCount(SpotType spotType) {
+        return totalByType.get(spotType.ordinal()) - occupiedByType.get(spotType.ordinal());
     }
 
     public List<ParkingSpot> getAvailableSpots(SpotType spotType) {
-        return spots.stream()
-                .filter(spot -> spot.isAvailable() && spot.getSpotType() == spotType)
-                .collect(Collectors.toList());
+        return getAvailableSpots(new SpotType[] { spotType });
+    }
+
+    /**
+     * Free spots of any of the given types, in floor, row, spot order.
+     */
+    public List<ParkingSpot> getAvailableSpots(SpotType... spotTypes) {
+        ParkingSpot[] current = spots;
+        AtomicLongArray[] bits = freeBits;
+        int count = spotCount;
+        List<ParkingSpot> result = new ArrayList<>();
+
+        for (int word = 0; word < bits[0].length(); word++) {
+            long merged = 0;
+            for (SpotType spotType : spotTypes) {
+                merged |= bits[spotType.ordinal()].get(word);
+            }
+            while (merged != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(merged);
+                if (index >= count) {
+                    break;
+                }
+                result.add(current[index]);
+                merged &= merged - 1;
+            }
+        }
+        return result;
     }
 
     public List<ParkingSpot> getAllAvailableSpots() {
-        return spots.stream()
-                .filter(ParkingSpot::isAvailable)
-                .collect(Collectors.toList());
+        return getAvailableSpots(SpotType.values());
     }
 
     public double getOccupancyRate() {
-        if (spots.isEmpty()) {
+        int total = spotCount;
+        if (total == 0) {
             return 0.0;
         }
 
-        long occupiedCount = spots.stream()
-                .filter(spot -> !spot.isAvailable())
-                .count();
-
-        return (occupiedCount * 100.0) / spots.size();
+        return (occupiedCount.get() * 100.0) / total;
     }
 
     public int getOccupiedCount() {
-        return (int) spots.stream()
-                .filter(spot -> !spot.isAvailable())
-                .count();
+        return occupiedCount.get();
     }
 
     public int getTotalSpots() {
-        return spots.size();
+        return spotCount;
+    }
+
+    public int getTotalSpots(SpotType spotType) {
+        return totalByType.get(spotType.ordinal());
+    }
+
+    public int getOccupiedCount(SpotType spotType) {
+        return occupiedByType.get(spotType.ordinal());
+    }
+
+    /**
+     * Copies the counters. Each counter is read atomically, but changes
+     * landing while the copy is taken may be only partly reflected.
+     */
+    public OccupancySnapshot.FloorOccupancy getOccupancy() {
+        int[] totals = new int[TYPE_COUNT];
+        int[] occupied = new int[TYPE_COUNT];
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            totals[type] = totalByType.get(type);
+            occupied[type] = occupiedByType.get(type);
+        }
+        return new OccupancySnapshot.FloorOccupancy(floorNumber, totals, occupied);
     }
 
     // Getters and setters
@@ -64,7 +307,7 @@ public class Floor {
     }
 
     public List<ParkingSpot> getSpots() {
-        return new ArrayList<>(spots);
+        return new ArrayList<>(Arrays.asList(spots).subList(0, spotCount));
     }
 
     @Override
@@ -0,0 +1,113 @@
+package parkinglotmanagementsystem.parking.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time copy of the lot's occupancy counters, cheap to take and
+ * safe to read from any thread.
+ */
+public class OccupancySnapshot {
+
+    private final int[] totalByType;
+    private final int[] occupiedByType;
+    private final List<FloorOccupancy> floors;
+
+    OccupancySnapshot(int[] totalByType, int[] occupiedByType, List<FloorOccupancy> floors) {
+        this.totalByType = totalByType.clone();
+        this.occupiedByType = occupiedByType.clone();
+        this.floors = Collections.unmodifiableList(new ArrayList<>(floors));
+    }
+
+    public int getTotalSpots() {
+        return sum(totalByType);
+    }
+
+    public int getOccupiedSpots() {
+        return sum(occupiedByType);
+    }
+
+    public int getAvailableSpots() {
+        return getTotalSpots() - getOccupiedSpots();
+    }
+
+    public double getOccupancyRate() {
+        return rate(getOccupiedSpots(), getTotalSpots());
+    }
+
+    public int getTotalSpots(SpotType spotType) {
+        return totalByType[spotType.ordinal()];
+    }
+
+    public int getOccupiedSpots(SpotType spotType) {
+        return occupiedByType[spotType.ordinal()];
+    }
+
+    public int getAvailableSpots(SpotType spotType) {
+        return getTotalSpots(spotType) - getOccupiedSpots(spotType);
+    }
+
+    public List<FloorOccupancy> getFloors() {
+        return floors;
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static double rate(int occupied, int total) {
+        if (total == 0) {
+            return 0.0;
+        }
+        return (occupied * 100.0) / total;
+    }
+
+    /**
+     * Counters of a single floor.
+     */
+    public static class FloorOccupancy {
+
+        private final int floorNumber;
+        private final int[] totalByType;
+        private final int[] occupiedByType;
+
+        FloorOccupancy(int floorNumber, int[] totalByType, int[] occupiedByType) {
+            this.floorNumber = floorNumber;
+            this.totalByType = totalByType.clone();
+            this.occupiedByType = occupiedByType.clone();
+        }
+
+        public int getFloorNumber() {
+            return floorNumber;
+        }
+
+        public int getTotalSpots() {
+            return sum(totalByType);
+        }
+
+        public int getOccupiedSpots() {
+            return sum(occupiedByType);
+        }
+
+        public int getAvailableSpots() {
+            return getTotalSpots() - getOccupiedSpots();
+        }
+
+        public double getOccupancyRate() {
+            return rate(getOccupiedSpots(), getTotalSpots());
+        }
+
+        public int getTotalSpots(SpotType spotType) {
+            return totalByType[spotType.ordinal()];
+        }
+
+        public int getOccupiedSpots(SpotType spotType) {
+            return occupiedByType[spotType.ordinal()];
+        }
+    }
+}
@@ -1,22 +1,49 @@
 package parkinglotmanagementsystem.parking.model;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
 
 public class ParkingLot {
 
+    // spot types each vehicle may use, in the order they are offered
+    private static final Map<VehicleType, SpotType[]> COMPATIBLE_SPOT_TYPES = new EnumMap<>(VehicleType.class);
+
+    static {
+        COMPATIBLE_SPOT_TYPES.put(VehicleType.MOTORCYCLE,
+                new SpotType[] { SpotType.COMPACT, SpotType.RESERVED });
+        COMPATIBLE_SPOT_TYPES.put(VehicleType.CAR,
+                new SpotType[] { SpotType.COMPACT, SpotType.REGULAR, SpotType.RESERVED });
+        COMPATIBLE_SPOT_TYPES.put(VehicleType.SUV,
+                new SpotType[] { SpotType.REGULAR, SpotType.RESERVED });
+        COMPATIBLE_SPOT_TYPES.put(VehicleType.HANDICAPPED,
+                new SpotType[] { SpotType.HANDICAPPED, SpotType.COMPACT, SpotType.REGULAR, SpotType.RESERVED });
+    }
+
     private int totalFloors;
     private List<Floor> floors;
+    private Map<String, ParkingSpot> spotsById;
+
+    // lot-wide counters indexed by SpotType.ordinal(), fed by the floors
+    private final AtomicIntegerArray totalByType = new AtomicIntegerArray(SpotType.values().length);
+    private final AtomicIntegerArray occupiedByType = new AtomicIntegerArray(SpotType.values().length);
+    private final AtomicInteger totalSpots = new AtomicInteger();
+    private final AtomicInteger totalOccupied = new AtomicInteger();
 
     public ParkingLot(int totalFloors) {
         this.totalFloors = totalFloors;
         this.floors = new ArrayList<>();
+        this.spotsById = new HashMap<>();
 
         // Initialize floors
         for (int i = 1; i <= totalFloors; i++) {
-            floors.add(new Floor(i));
+            floors.add(new Floor(i, this));
         }
     }
 
@@ -24,6 +51,7 @@ public class ParkingLot {
         int floorIndex = spot.getFloorNumber() - 1;
         if (floorIndex >= 0 && floorIndex < floors.size()) {
             floors.get(floorIndex).addSpot(spot);
+            spotsById.put(spot.getSpotId(), spot);
         } else {
             throw new IllegalArgumentException(
                     "Invalid floor number: " + spot.getFloorNumber());
@@ -32,17 +60,55 @@ public class ParkingLot {
 
     public List<ParkingSpot> findAvailableSpots(VehicleType vehicleType) {
         List<ParkingSpot> availableSpots = new ArrayList<>();
+        SpotType[] spotTypes = COMPATIBLE_SPOT_TYPES.get(vehicleType);
 
         for (Floor floor : floors) {
-            for (ParkingSpot spot : floor.getAllAvailableSpots()) {
-                // Check if vehicle can park in this spot type
-                if (canVehicleParkInSpot(vehicleType, spot.getSpotType())) {
-                    availableSpots.add(spot);
+            availableSpots.addAll(floor.getAvailableSpots(spotTypes));
+        }
+
+        return availableSpots;
+    }
+
+    /**
+     * Suggests a spot for the vehicle without scanning or copying the lot:
+     * the first free spot of the most suitable compatible type, lowest
+     * floor first.
+     *
+     * @return the spot, or null if no compatible spot is free
+     */
+    public ParkingSpot nextAvailableSpot(VehicleType vehicleType) {
+        for (SpotType spotType : COMPATIBLE_SPOT_TYPES.get(vehicleType)) {
+            for (Floor floor : floors) {
+                ParkingSpot spot = floor.nextAvailableSpot(spotType);
+                if (spot != null) {
+                    return spot;
                 }
             }
         }
+        return null;
+    }
 
-        return availableSpots;
+    /**
+     * Picks and claims the best free spot for the vehicle without taking a
+     * lock: each candidate is claimed with a compare-and-set, and a spot
+     * another lane wins first is simply skipped. RESERVED spots are never
+     * handed out automatically since they earn a misuse fine.
+     *
+     * @return the claimed spot, or null if every compatible spot is taken
+     */
+    public ParkingSpot claimNextAvailableSpot(VehicleType vehicleType, String plateNumber) {
+        for (SpotType spotType : COMPATIBLE_SPOT_TYPES.get(vehicleType)) {
+            if (spotType == SpotType.RESERVED) {
+                continue;
+            }
+            for (Floor floor : floors) {
+                ParkingSpot spot = floor.claimNextAvailableSpot(spotType, plateNumber);
+                if (spot != null) {
+                    return spot;
+                }
+            }
+        }
+        return null;
     }
 
     public List<ParkingSpot> findAllSpots() {
@@ -56,19 +122,8 @@ public class ParkingLot {
         return spots;
     }
 
-    private boolean canVehicleParkInSpot(VehicleType vehicleType, SpotType spotType) {
-        switch (vehicleType) {
-            case MOTORCYCLE:
-                return spotType == SpotType.RESERVED || spotType == SpotType.COMPACT;
-            case CAR:
-                return spotType == SpotType.RESERVED || spotType == SpotType.COMPACT || spotType == SpotType.REGULAR;
-            case SUV:
-                return spotType == SpotType.RESERVED || spotType == SpotType.REGULAR;
-            case HANDICAPPED:
-                return true; // Can park in any spot
-            default:
-                return false;
-        }
+    public ParkingSpot getSpot(String spotId) {
+        return spotsById.get(spotId);
     }
 
     public Floor getFloor(int floorNumber) {
@@ -78,32 +133,79 @@ public class ParkingLot {
         return null;
     }
 
-    public double getGlobalOccupancyRate() {
-        int totalSpots = 0;
-        int occupiedSpots = 0;
+    // Called by the floors whenever a spot is added or changes
 
+    void spotAdded(SpotType spotType, boolean available) {
+        totalByType.incrementAndGet(spotType.ordinal());
+        totalSpots.incrementAndGet();
+        if (!available) {
+            spotOccupied(spotType);
+        }
+    }
+
+    void spotOccupied(SpotType spotType) {
+        occupiedByType.incrementAndGet(spotType.ordinal());
+        totalOccupied.incrementAndGet();
+    }
+
+    void spotReleased(SpotType spotType) {
+        occupiedByType.decrementAndGet(spotType.ordinal());
+        totalOccupied.decrementAndGet();
+    }
+
+    void spotTypeChanged(SpotType oldType, SpotType newType, boolean occupied) {
+        totalByType.decrementAndGet(oldType.ordinal());
+        totalByType.incrementAndGet(newType.ordinal());
+        if (occupied) {
+            occupiedByType.decrementAndGet(oldType.ordinal());
+            occupiedByType.incrementAndGet(newType.ordinal());
+        }
+    }
+
+    /**
+     * Copies the maintained counters, O(floors) with no spot scan. Counters
+     * are read one by one, so claims landing meanwhile may be partly
+     * reflected.
+     */
+    public OccupancySnapshot getOccupancySnapshot() {
+        int typeCount = SpotType.values().length;
+        int[] totals = new int[typeCount];
+        int[] occupied = new int[typeCount];
+        for (int type = 0; type < typeCount; type++) {
+            totals[type] = totalByType.get(type);
+            occupied[type] = occupiedByType.get(type);
+        }
+
+        List<OccupancySnapshot.FloorOccupancy> floorOccupancies = new ArrayList<>(floors.size());
         for (Floor floor : floors) {
-            totalSpots += floor.getTotalSpots();
-            occupiedSpots += floor.getOccupiedCount();
+            floorOccupancies.add(floor.getOccupancy());
         }
+        return new OccupancySnapshot(totals, occupied, floorOccupancies);
+    }
 
-        if (totalSpots == 0) {
+    public double getGlobalOccupancyRate() {
+        int total = totalSpots.get();
+        if (total == 0) {
             return 0.0;
         }
 
-        return (occupiedSpots * 100.0) / totalSpots;
+        return (totalOccupied.get() * 100.0) / total;
     }
 
     public int getTotalSpots() {
-        return floors.stream()
-                .mapToInt(Floor::getTotalSpots)
-                .sum();
+        return totalSpots.get();
     }
 
     public int getTotalOccupied() {
-        return floors.stream()
-                .mapToInt(Floor::getOccupiedCount)
-                .sum();
+        return totalOccupied.get();
+    }
+
+    public int getTotalSpots(SpotType spotType) {
+        return totalByType.get(spotType.ordinal());
+    }
+
+    public int getTotalOccupied(SpotType spotType) {
+        return occupiedByType.get(spotType.ordinal());
     }
 
     // Getters ans Setters
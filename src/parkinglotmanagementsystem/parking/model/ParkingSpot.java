@@ -1,15 +1,44 @@
 package parkinglotmanagementsystem.parking.model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A parking spot. Occupancy is claimed with a compare-and-set on the spot's
+ * state, so any number of lanes can race for the same spot without a lock
+ * and exactly one of them wins.
+ */
 public class ParkingSpot {
 
+    // state values; the LOCKED variants are held briefly while the spot type
+    // changes or the floor index is updated, so both always see the same type
+    private static final int FREE = 0;
+    private static final int TAKEN = 1;
+    private static final int FREE_LOCKED = 2;
+    private static final int TAKEN_LOCKED = 3;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(ParkingSpot.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String spotId; // e.g., "F1-R1-S1"
     private int floorNumber;
     private int rowNumber;
     private int spotNumber;
-    private SpotType spotType;
-    private double hourlyRate;
-    private SpotStatus status;
-    private String currentPlate; // null if available
+    private volatile SpotType spotType;
+    private volatile double hourlyRate;
+    private volatile int state;
+    private volatile String currentPlate; // null if available
+
+    // floor whose free-spot index tracks this spot, and our slot in it
+    private Floor floor;
+    private int floorIndex;
 
     public ParkingSpot(int floorNumber, int rowNumber, int spotNumber, SpotType spotType) {
         this.floorNumber = floorNumber;
@@ -17,7 +46,7 @@ public class ParkingSpot {
         this.spotNumber = spotNumber;
         this.spotType = spotType;
         this.hourlyRate = spotType.getHourlyRate();
-        this.status = SpotStatus.AVAILABLE;
+        this.state = FREE;
         this.currentPlate = null;
         this.spotId = generateSpotId(floorNumber, rowNumber, spotNumber);
     }
@@ -30,7 +59,7 @@ public class ParkingSpot {
         this.spotNumber = spotNumber;
         this.spotType = spotType;
         this.hourlyRate = hourlyRate;
-        this.status = status;
+        this.state = status == SpotStatus.OCCUPIED ? TAKEN : FREE;
         this.currentPlate = currentPlate;
     }
 
@@ -39,17 +68,81 @@ public class ParkingSpot {
     }
 
     public boolean isAvailable() {
-        return status == SpotStatus.AVAILABLE;
+        int current = state;
+        return current == FREE || current == FREE_LOCKED;
+    }
+
+    /**
+     * Claims the spot if it is free.
+     *
+     * @return true if this call took the spot, false if it was already taken
+     */
+    public boolean tryOccupy(String plateNumber) {
+        while (true) {
+            int current = state;
+            if (current == FREE_LOCKED) {
+                Thread.onSpinWait(); // spot type is being changed
+                continue;
+            }
+            if (current != FREE) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, FREE, TAKEN_LOCKED)) {
+                try {
+                    this.currentPlate = plateNumber;
+                    if (floor != null) {
+                        floor.spotOccupied(floorIndex, spotType);
+                    }
+                } finally {
+                    state = TAKEN;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the spot if it is taken.
+     *
+     * @return true if this call freed the spot
+     */
+    public boolean tryRelease() {
+        while (true) {
+            int current = state;
+            if (current == TAKEN_LOCKED) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (current != TAKEN) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, TAKEN, FREE_LOCKED)) {
+                try {
+                    this.currentPlate = null;
+                    if (floor != null) {
+                        floor.spotReleased(floorIndex, spotType);
+                    }
+                } finally {
+                    state = FREE;
+                }
+                return true;
+            }
+        }
     }
 
     public void occupy(String plateNumber) {
-        this.status = SpotStatus.OCCUPIED;
-        this.currentPlate = plateNumber;
+        if (!tryOccupy(plateNumber)) {
+            this.currentPlate = plateNumber;
+        }
     }
 
     public void release() {
-        this.status = SpotStatus.AVAILABLE;
-        this.currentPlate = null;
+        tryRelease();
+    }
+
+    void attachTo(Floor floor, int floorIndex) {
+        this.floor = floor;
+        this.floorIndex = floorIndex;
     }
 
     // Getters and Setters
@@ -74,7 +167,28 @@ public class ParkingSpot {
     }
 
     public void setSpotType(SpotType spotType) {
-        this.spotType = spotType;
+        // lock out claims and releases while the floor index moves the spot
+        int unlocked;
+        while (true) {
+            unlocked = state;
+            if (unlocked == FREE || unlocked == TAKEN) {
+                int locked = unlocked == FREE ? FREE_LOCKED : TAKEN_LOCKED;
+                if (STATE.compareAndSet(this, unlocked, locked)) {
+                    break;
+                }
+            }
+            Thread.onSpinWait();
+        }
+
+        try {
+            SpotType oldType = this.spotType;
+            this.spotType = spotType;
+            if (floor != null && oldType != spotType) {
+                floor.spotTypeChanged(floorIndex, oldType, spotType, unlocked == TAKEN);
+            }
+        } finally {
+            state = unlocked;
+        }
     }
 
     public double getHourlyRate() {
@@ -86,11 +200,15 @@ public class ParkingSpot {
     }
 
     public SpotStatus getStatus() {
-        return status;
+        return isAvailable() ? SpotStatus.AVAILABLE : SpotStatus.OCCUPIED;
     }
 
     public void setStatus(SpotStatus status) {
-        this.status = status;
+        if (status == SpotStatus.OCCUPIED) {
+            tryOccupy(currentPlate);
+        } else {
+            release();
+        }
     }
 
     public String getCurrentPlate() {
@@ -104,6 +222,6 @@ public class ParkingSpot {
     @Override
     public String toString() {
         return String.format("Spot[%s, Type=%s, Rate=RM%.2f/hr, Status=%s, Plate=%s]",
-                spotId, spotType, hourlyRate, status, currentPlate != null ? currentPlate : "None");
+                spotId, spotType, hourlyRate, getStatus(), currentPlate != null ? currentPlate : "None");
     }
 }
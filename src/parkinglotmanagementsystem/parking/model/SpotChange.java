@@ -0,0 +1,59 @@
+package parkinglotmanagementsystem.parking.model;
+
+/**
+ * Data of a SPOT_STATUS_CHANGED or SPOT_TYPE_CHANGED event: which spot
+ * changed and its state before and after.
+ */
+public class SpotChange {
+
+    private final String spotId;
+    private final SpotStatus oldStatus;
+    private final SpotStatus newStatus;
+    private final SpotType oldType;
+    private final SpotType newType;
+
+    public SpotChange(String spotId, SpotStatus oldStatus, SpotStatus newStatus,
+            SpotType oldType, SpotType newType) {
+        this.spotId = spotId;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.oldType = oldType;
+        this.newType = newType;
+    }
+
+    public static SpotChange statusChanged(ParkingSpot spot, SpotStatus oldStatus, SpotStatus newStatus) {
+        return new SpotChange(spot.getSpotId(), oldStatus, newStatus, spot.getSpotType(), spot.getSpotType());
+    }
+
+    public static SpotChange typeChanged(ParkingSpot spot, SpotType oldType, SpotType newType) {
+        return new SpotChange(spot.getSpotId(), spot.getStatus(), spot.getStatus(), oldType, newType);
+    }
+
+    // Getters
+
+    public String getSpotId() {
+        return spotId;
+    }
+
+    public SpotStatus getOldStatus() {
+        return oldStatus;
+    }
+
+    public SpotStatus getNewStatus() {
+        return newStatus;
+    }
+
+    public SpotType getOldType() {
+        return oldType;
+    }
+
+    public SpotType getNewType() {
+        return newType;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SpotChange[%s, %s -> %s, %s -> %s]",
+                spotId, oldStatus, newStatus, oldType, newType);
+    }
+}
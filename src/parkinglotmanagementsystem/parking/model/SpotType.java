@@ -12,6 +12,9 @@ public enum SpotType {
         this.hourlyRate = hourlyRate;
     }
 
+    /**
+     * Rate of the default tariff. The rate in force is the active tariff's.
+     */
     public double getHourlyRate() {
         return hourlyRate;
     }
@@ -1,28 +1,39 @@
 package parkinglotmanagementsystem.parking.service;
 
-import parkinglotmanagementsystem.main.observer.ParkingEventListener;
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
+import parkinglotmanagementsystem.fineandpayment.service.TariffRegistry;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.UnitOfWork;
+import parkinglotmanagementsystem.main.observer.ParkingEventBus;
 import parkinglotmanagementsystem.main.observer.ParkingEventType;
 import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.parking.dao.ParkingSpotDAO;
 import parkinglotmanagementsystem.parking.model.Floor;
+import parkinglotmanagementsystem.parking.model.OccupancySnapshot;
 import parkinglotmanagementsystem.parking.model.ParkingLot;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
+import parkinglotmanagementsystem.parking.model.SpotChange;
 import parkinglotmanagementsystem.parking.model.SpotStatus;
 import parkinglotmanagementsystem.parking.model.SpotType;
 import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ParkingService {
 
     private ParkingSpotDAO spotDAO;
-    private ParkingLot parkingLot;
-    private List<ParkingEventListener> listeners;
+    private TariffRegistry tariffRegistry;
+    // authoritative copy of the lot, kept in step with the database by the
+    // write methods below; only loadParkingLot() rebuilds it from scratch
+    private volatile ParkingLot parkingLot;
+    private ParkingEventBus eventBus;
 
     public ParkingService() {
         this.spotDAO = new ParkingSpotDAO();
-        this.listeners = new ArrayList<>();
+        this.tariffRegistry = TariffRegistry.getInstance();
+        this.eventBus = ParkingEventBus.getInstance();
         loadParkingLot();
     }
 
@@ -43,28 +54,28 @@ public class ParkingService {
                 int spotNum = 1;
 
                 for (int i = 0; i < Constants.COMPACT_SPOTS_PER_ROW; i++) {
-                    ParkingSpot spot = new ParkingSpot(floor, row, spotNum++, SpotType.COMPACT);
+                    ParkingSpot spot = createSpot(floor, row, spotNum++, SpotType.COMPACT);
                     if (spotDAO.insertSpot(spot)) {
                         spotsCreated++;
                     }
                 }
 
                 for (int i = 0; i < Constants.REGULAR_SPOTS_PER_ROW; i++) {
-                    ParkingSpot spot = new ParkingSpot(floor, row, spotNum++, SpotType.REGULAR);
+                    ParkingSpot spot = createSpot(floor, row, spotNum++, SpotType.REGULAR);
                     if (spotDAO.insertSpot(spot)) {
                         spotsCreated++;
                     }
                 }
 
                 for (int i = 0; i < Constants.HANDICAPPED_SPOTS_PER_ROW; i++) {
-                    ParkingSpot spot = new ParkingSpot(floor, row, spotNum++, SpotType.HANDICAPPED);
+                    ParkingSpot spot = createSpot(floor, row, spotNum++, SpotType.HANDICAPPED);
                     if (spotDAO.insertSpot(spot)) {
                         spotsCreated++;
                     }
                 }
 
                 for (int i = 0; i < Constants.RESERVED_SPOTS_PER_ROW; i++) {
-                    ParkingSpot spot = new ParkingSpot(floor, row, spotNum++, SpotType.RESERVED);
+                    ParkingSpot spot = createSpot(floor, row, spotNum++, SpotType.RESERVED);
                     if (spotDAO.insertSpot(spot)) {
                         spotsCreated++;
                     }
@@ -76,42 +87,126 @@ public class ParkingService {
         loadParkingLot();
     }
 
+    private ParkingSpot createSpot(int floor, int row, int spotNumber, SpotType spotType) {
+        ParkingSpot spot = new ParkingSpot(floor, row, spotNumber, spotType);
+        spot.setHourlyRate(tariffRegistry.getActiveTariff().getHourlyRate(spotType));
+        return spot;
+    }
+
+    /**
+     * Rebuilds the in-memory lot from the database. Only needed at startup
+     * or when the database was changed outside this service.
+     */
     public void loadParkingLot() {
-        this.parkingLot = new ParkingLot(Constants.TOTAL_FLOORS);
-        List<ParkingSpot> allSpots = spotDAO.getAllSpots();
-        for (ParkingSpot spot : allSpots) {
-            parkingLot.addSpot(spot);
+        ParkingLot lot = new ParkingLot(Constants.TOTAL_FLOORS);
+        if (!spotDAO.forEachSpot(Constants.DB_FETCH_SIZE, lot::addSpot) && parkingLot != null) {
+            System.err.println("Keeping the current parking lot, reload failed");
+            return;
         }
-        System.out.println("Loaded " + allSpots.size() + " parking spots from database.");
+        this.parkingLot = lot;
+        System.out.println("Loaded " + lot.getTotalSpots() + " parking spots from database.");
     }
 
     public List<ParkingSpot> getSuitableSpots(VehicleType vehicleType) {
         return parkingLot.findAvailableSpots(vehicleType);
     }
 
+    public ParkingSpot suggestSpot(VehicleType vehicleType) {
+        return parkingLot.nextAvailableSpot(vehicleType);
+    }
+
     public boolean allocateSpot(String spotId, String plateNumber) {
-        ParkingSpot spot = spotDAO.findSpotById(spotId);
+        return claimSpot(spotId, plateNumber) != null;
+    }
+
+    /**
+     * Claims a specific free spot, first in memory, then in the database. If
+     * the surrounding transaction rolls back the spot is freed again.
+     *
+     * @return the claimed spot, or null if it does not exist or is occupied
+     */
+    public ParkingSpot claimSpot(String spotId, String plateNumber) {
+        ParkingSpot spot = reserveSpot(spotId, plateNumber);
+        return spot != null && confirmClaim(spot, plateNumber, spot.getSpotType()) ? spot : null;
+    }
+
+    /**
+     * Reserves a specific free spot in memory only, with a compare-and-set so
+     * concurrent lanes cannot both take it. Needs no database lock, so lanes
+     * reserve in parallel. The caller then either confirms the reservation
+     * with confirmClaim inside its transaction or gives it back with
+     * cancelReservation.
+     *
+     * @return the reserved spot, or null if it does not exist or is occupied
+     */
+    public ParkingSpot reserveSpot(String spotId, String plateNumber) {
+        ParkingSpot spot = parkingLot.getSpot(spotId);
 
         if (spot == null) {
             System.err.println("Spot not found: " + spotId);
-            return false;
+            return null;
         }
 
-        if (!spot.isAvailable()) {
+        if (!spot.tryOccupy(plateNumber)) {
             System.err.println("Spot is already occupied: " + spotId);
-            return false;
+            return null;
         }
 
-        // Update spot status in database
-        boolean updated = spotDAO.updateSpotStatus(spotId, SpotStatus.OCCUPIED, plateNumber);
+        return spot;
+    }
 
-        if (updated) {
-            // Update in-memory object
-            spot.occupy(plateNumber);
-            System.out.println("Spot allocated: " + spotId + " to " + plateNumber);
+    /**
+     * Picks and reserves the best free spot for the vehicle type in memory,
+     * as reserveSpot does, skipping spots other lanes win meanwhile.
+     *
+     * @return the reserved spot, or null if no compatible spot is free
+     */
+    public ParkingSpot reserveBestSpot(VehicleType vehicleType, String plateNumber) {
+        ParkingSpot spot = parkingLot.claimNextAvailableSpot(vehicleType, plateNumber);
+
+        if (spot == null) {
+            System.err.println("No free spot for vehicle type: " + vehicleType);
         }
 
-        return updated;
+        return spot;
+    }
+
+    /**
+     * Writes a reserved spot's claim to the database, provided the spot is
+     * still of the type the vehicle was checked against. If the write fails
+     * the reservation is given back, if the surrounding transaction rolls
+     * back later the spot is freed then.
+     *
+     * @return false if the claim could not be written
+     */
+    public boolean confirmClaim(ParkingSpot spot, String plateNumber, SpotType spotType) {
+        String spotId = spot.getSpotId();
+
+        if (spotDAO.claimSpot(spotId, plateNumber, spotType) == null) {
+            // memory and database disagree or the write failed, give it back
+            spot.release();
+            System.err.println("Failed to claim spot in database: " + spotId);
+            return false;
+        }
+
+        DatabaseManager dbManager = DatabaseManager.getInstance();
+        dbManager.runAfterRollback(() -> {
+            spot.release();
+            notifySpotStatusChanged(spot, SpotStatus.OCCUPIED, SpotStatus.AVAILABLE);
+        });
+        dbManager.runAfterCommit(() -> {
+            System.out.println("Spot allocated: " + spotId + " to " + plateNumber);
+            notifySpotStatusChanged(spot, SpotStatus.AVAILABLE, SpotStatus.OCCUPIED);
+        });
+
+        return true;
+    }
+
+    /**
+     * Gives back a reservation that was never confirmed.
+     */
+    public void cancelReservation(ParkingSpot spot) {
+        spot.release();
     }
 
     public void notifyAllocateSpot() {
@@ -119,7 +214,7 @@ public class ParkingService {
     }
 
     public boolean releaseSpot(String spotId) {
-        ParkingSpot spot = spotDAO.findSpotById(spotId);
+        ParkingSpot spot = parkingLot.getSpot(spotId);
 
         if (spot == null) {
             System.err.println("Spot not found: " + spotId);
@@ -130,8 +225,11 @@ public class ParkingService {
         boolean updated = spotDAO.updateSpotStatus(spotId, SpotStatus.AVAILABLE, null);
 
         if (updated) {
-            spot.release();
-            System.out.println("Spot released: " + spotId);
+            DatabaseManager.getInstance().runAfterCommit(() -> {
+                spot.release();
+                System.out.println("Spot released: " + spotId);
+                notifySpotStatusChanged(spot, SpotStatus.OCCUPIED, SpotStatus.AVAILABLE);
+            });
         }
 
         return updated;
@@ -142,15 +240,19 @@ public class ParkingService {
     }
 
     public ParkingSpot getSpotById(String spotId) {
-        return spotDAO.findSpotById(spotId);
+        return parkingLot.getSpot(spotId);
     }
 
     public List<ParkingSpot> getSpotsByFloor(int floorNumber) {
-        return spotDAO.getSpotsByFloor(floorNumber);
+        Floor floor = parkingLot.getFloor(floorNumber);
+        if (floor == null) {
+            return new ArrayList<>();
+        }
+        return floor.getSpots();
     }
 
     public List<ParkingSpot> getAllSpots() {
-        return spotDAO.getAllSpots();
+        return parkingLot.findAllSpots();
     }
 
     public boolean updateSpotType(String spotId, SpotType spotType) {
@@ -165,56 +267,86 @@ public class ParkingService {
             return false;
         }
 
-        parkingSpot.setSpotType(spotType);
-        parkingSpot.setHourlyRate(spotType.getHourlyRate());
-        boolean updated = spotDAO.updateSpot(parkingSpot);
+        // the database refuses the change if a car took the spot meanwhile, a
+        // lane holding only a reservation is refused by claimSpot instead as
+        // the spot type no longer matches. The spot itself changes after the
+        // commit while the writer is still held, before any lane can claim.
+        double hourlyRate = tariffRegistry.getActiveTariff().getHourlyRate(spotType);
+        try (UnitOfWork unitOfWork = DatabaseManager.getInstance().beginUnitOfWork()) {
+            if (!spotDAO.updateSpotType(spotId, spotType, hourlyRate)) {
+                return false;
+            }
+
+            unitOfWork.afterCommit(() -> {
+                SpotType oldType = parkingSpot.getSpotType();
+                parkingSpot.setSpotType(spotType);
+                parkingSpot.setHourlyRate(hourlyRate);
+                System.out.println("Parking spot " + spotId + " is updated");
+                notifyListeners(ParkingEventType.SPOT_TYPE_CHANGED,
+                        SpotChange.typeChanged(parkingSpot, oldType, spotType));
+            });
+            unitOfWork.commit();
+        } catch (SQLException e) {
+            System.err.println("Failed to commit spot type change: " + spotId);
+            e.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reprices every spot with the tariff's rates after it became active.
+     * Parked vehicles are still billed at the tariff on their ticket.
+     */
+    public boolean applyHourlyRates(Tariff tariff) {
+        boolean updated = spotDAO.updateHourlyRates(tariff.getHourlyRates());
 
         if (updated) {
-            System.out.println("Parking spot " + spotId + " is updated");
+            DatabaseManager.getInstance().runAfterCommit(() -> {
+                for (ParkingSpot spot : parkingLot.findAllSpots()) {
+                    spot.setHourlyRate(tariff.getHourlyRate(spot.getSpotType()));
+                }
+                notifyListeners(ParkingEventType.TARIFF_CHANGED, tariff);
+            });
         }
-        notifyListeners(ParkingEventType.SPOT_TYPE_CHANGED, null);
 
         return updated;
     }
 
     public ParkingLot getParkingLot() {
-        // Reload to ensure fresh data
-        parkingLot = new ParkingLot(Constants.TOTAL_FLOORS);
-        loadParkingLot();
         return parkingLot;
     }
 
+    public OccupancySnapshot getOccupancySnapshot() {
+        return parkingLot.getOccupancySnapshot();
+    }
+
     public String getOccupancyReport() {
-        ParkingLot lot = getParkingLot();
+        OccupancySnapshot occupancy = getOccupancySnapshot();
         StringBuilder report = new StringBuilder();
 
         report.append("=== OCCUPANCY REPORT ===\n");
         report.append(String.format("Total Occupancy: %.1f%% (%d/%d spots)\n\n",
-                lot.getGlobalOccupancyRate(), lot.getTotalOccupied(), lot.getTotalSpots()));
+                occupancy.getOccupancyRate(), occupancy.getOccupiedSpots(), occupancy.getTotalSpots()));
 
-        for (Floor floor : lot.getAllFloors()) {
+        for (OccupancySnapshot.FloorOccupancy floor : occupancy.getFloors()) {
             report.append(String.format("Floor %d: %.1f%% (%d/%d spots)\n",
                     floor.getFloorNumber(), floor.getOccupancyRate(),
-                    floor.getOccupiedCount(), floor.getTotalSpots()));
+                    floor.getOccupiedSpots(), floor.getTotalSpots()));
         }
 
         return report.toString();
     }
 
-    // Observer Pattern Methods 
-    public void addListener(ParkingEventListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
-    }
+    // Observer Pattern Methods
 
-    public void removeListener(ParkingEventListener listener) {
-        listeners.remove(listener);
+    private void notifySpotStatusChanged(ParkingSpot spot, SpotStatus oldStatus, SpotStatus newStatus) {
+        notifyListeners(ParkingEventType.SPOT_STATUS_CHANGED,
+                SpotChange.statusChanged(spot, oldStatus, newStatus));
     }
 
     private void notifyListeners(ParkingEventType eventType, Object eventData) {
-        for (ParkingEventListener listener : listeners) {
-            listener.onParkingEvent(eventType, eventData);
-        }
+        eventBus.publish(eventType, eventData);
     }
 }
@@ -2,9 +2,19 @@ package parkinglotmanagementsystem.report.controller;
 
 import parkinglotmanagementsystem.admin.controller.AdminController;
 import parkinglotmanagementsystem.fineandpayment.model.Fine;
+import parkinglotmanagementsystem.fineandpayment.model.PaymentMethod;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueBucket;
+import parkinglotmanagementsystem.fineandpayment.model.RevenueGranularity;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.TimeUtil;
+import parkinglotmanagementsystem.parking.model.SpotType;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -74,6 +84,120 @@ public class ReportController {
         return sb.toString();
     }
 
+    /**
+     * Revenue per day over the last REVENUE_TREND_DAYS days, with totals per
+     * payment method and spot type.
+     */
+    public String generateDailyRevenueReport() {
+        LocalDateTime to = TimeUtil.now();
+        LocalDateTime from = to.toLocalDate().minusDays(Constants.REVENUE_TREND_DAYS - 1).atStartOfDay();
+        return generateRevenueTrendReport(RevenueGranularity.DAY, from, to);
+    }
+
+    /**
+     * Revenue per hour since midnight.
+     */
+    public String generateHourlyRevenueReport() {
+        LocalDateTime to = TimeUtil.now();
+        return generateRevenueTrendReport(RevenueGranularity.HOUR, to.toLocalDate().atStartOfDay(), to);
+    }
+
+    public String generateRevenueTrendReport(RevenueGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        List<RevenueBucket> buckets = adminController.getRevenueByBucket(granularity, from, to);
+        List<RevenueBucket> breakdown = adminController.getRevenueBreakdown(granularity, from, to);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("=".repeat(60)).append("\n");
+        sb.append(granularity).append(" REVENUE REPORT\n");
+        sb.append("=".repeat(60)).append("\n\n");
+
+        sb.append(String.format("From: %s%n", TimeUtil.formatForDisplay(from)));
+        sb.append(String.format("To: %s%n", TimeUtil.formatForDisplay(to)));
+        sb.append("\n");
+
+        if (buckets.isEmpty()) {
+            sb.append("No payments in this period.\n");
+            sb.append("=".repeat(60)).append("\n");
+            return sb.toString();
+        }
+
+        sb.append("-".repeat(60)).append("\n");
+        sb.append(String.format("%-20s %-10s %-10s %-8s %-10s%n",
+                "Period", "Payments", "Parking", "Fines", "Total"));
+        sb.append("-".repeat(60)).append("\n");
+
+        int paymentCount = 0;
+        double totalRevenue = 0.0;
+        for (RevenueBucket bucket : buckets) {
+            sb.append(String.format("%-20s %-10d %-10.2f %-8.2f %-10.2f%n",
+                    TimeUtil.formatForDisplay(bucket.getBucketStart()),
+                    bucket.getPaymentCount(),
+                    bucket.getParkingRevenue(),
+                    bucket.getFineRevenue(),
+                    bucket.getTotalRevenue()));
+            paymentCount += bucket.getPaymentCount();
+            totalRevenue += bucket.getTotalRevenue();
+        }
+
+        sb.append("-".repeat(60)).append("\n");
+        sb.append(String.format("Total: RM %.2f from %d payments%n", totalRevenue, paymentCount));
+        sb.append("\n");
+
+        Map<PaymentMethod, Double> byMethod = new EnumMap<>(PaymentMethod.class);
+        Map<SpotType, Double> bySpotType = new EnumMap<>(SpotType.class);
+        for (RevenueBucket bucket : breakdown) {
+            byMethod.merge(bucket.getPaymentMethod(), bucket.getTotalRevenue(), Double::sum);
+            bySpotType.merge(bucket.getSpotType(), bucket.getTotalRevenue(), Double::sum);
+        }
+
+        sb.append("By Payment Method:\n");
+        for (Map.Entry<PaymentMethod, Double> entry : byMethod.entrySet()) {
+            sb.append(String.format("  %-15s RM %.2f%n", entry.getKey(), entry.getValue()));
+        }
+        sb.append("By Spot Type:\n");
+        for (Map.Entry<SpotType, Double> entry : bySpotType.entrySet()) {
+            sb.append(String.format("  %-15s RM %.2f%n", entry.getKey(), entry.getValue()));
+        }
+
+        sb.append("=".repeat(60)).append("\n");
+
+        return sb.toString();
+    }
+
+    /**
+     * Writes every payment as CSV, one row at a time, so the export runs in
+     * constant memory however long the history is.
+     *
+     * @return false if the payments could not be read or written
+     */
+    public boolean exportPaymentsCsv(Writer writer) {
+        try {
+            writer.write("payment_id,ticket_id,parking_fee,fine_amount,total_amount,payment_method,payment_time\n");
+
+            boolean complete = adminController.forEachPayment(payment -> {
+                try {
+                    writer.write(String.format("%d,%s,%.2f,%.2f,%.2f,%s,%s%n",
+                            payment.getPaymentId(),
+                            payment.getTicketId(),
+                            payment.getParkingFee(),
+                            payment.getFineAmount(),
+                            payment.getTotalAmount(),
+                            payment.getPaymentMethod(),
+                            TimeUtil.formatForDatabase(payment.getPaymentTime())));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            writer.flush();
+            return complete;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to export payments");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     public String generateFineReport() {
         Map<String, Object> fineStats = adminController.getFineStats();
 
@@ -86,8 +210,7 @@ public class ReportController {
         sb.append(String.format("Total Unpaid Amount: RM %.2f%n", fineStats.get("totalUnpaidAmount")));
         sb.append("\n");
 
-        @SuppressWarnings("unchecked")
-        List<Fine> unpaidFines = (List<Fine>) fineStats.get("unpaidFines");
+        List<Fine> unpaidFines = adminController.getAllUnpaidFines();
 
         if (unpaidFines.isEmpty()) {
             sb.append("No outstanding fines.\n");
@@ -1,5 +1,9 @@
 package parkinglotmanagementsystem.vehicleandticket.controller;
 
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
+import parkinglotmanagementsystem.fineandpayment.service.TariffRegistry;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.UnitOfWork;
 import parkinglotmanagementsystem.main.util.PlateValidator;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
@@ -30,93 +34,119 @@ public class EntryController {
   }
 
   /**
-   * Parks a vehicle in a specific spot
+   * The tariff a vehicle parking now would lock.
+   */
+  public Tariff getActiveTariff() {
+    return TariffRegistry.getInstance().getActiveTariff();
+  }
+
+  /**
+   * Best free spot for the vehicle type, or null if the lot is full for it.
+   */
+  public ParkingSpot suggestSpot(VehicleType vehicleType) {
+    return parkingService.suggestSpot(vehicleType);
+  }
+
+  /**
+   * Parks a vehicle in the best free spot for its type. The spot is picked
+   * and reserved in memory before the entry takes the database writer, so
+   * lanes only queue for the writes, not for finding a spot.
+   */
+  public Ticket parkVehicle(String plateNumber, VehicleType vehicleType) {
+    return parkVehicle(plateNumber, vehicleType, null);
+  }
+
+  /**
+   * Parks a vehicle in a specific spot, or the best free one if spotId is null
    * Complete entry workflow:
    * 1. Validate plate number
-   * 2. Register vehicle (if not already registered)
+   * 2. Reserve the spot in memory if it is still free, no lock held
+   * Then, committed as one transaction:
    * 3. Check if vehicle is already parked
-   * 4. Validate spot availability and compatibility
-   * 5. Check reservation (if RESERVED spot)
-   * 6. Allocate spot
+   * 4. Register vehicle (if not already registered)
+   * 5. Check compatibility and reservation (if RESERVED spot)
+   * 6. Claim the reserved spot in the database
    * 7. Create parking ticket
+   * The reservation is given back if any step fails.
    */
   public Ticket parkVehicle(String plateNumber, VehicleType vehicleType, String spotId) {
     try {
       // Step 1: Validate plate number
       String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
 
-      // Step 2: Register vehicle if not already registered
-      Vehicle vehicle = vehicleService.getVehicle(normalizedPlate);
-      if (vehicle == null) {
-        vehicle = vehicleService.registerVehicle(normalizedPlate, vehicleType);
+      // Step 2: Reserve spot, fails if it is missing or already occupied
+      ParkingSpot spot = spotId == null
+          ? parkingService.reserveBestSpot(vehicleType, normalizedPlate)
+          : parkingService.reserveSpot(spotId, normalizedPlate);
+      if (spot == null) {
+        System.err.println("Spot is not available: " + (spotId == null ? vehicleType : spotId));
+        return null;
+      }
+
+      Ticket ticket;
+      boolean claimed = false;
+
+      try (UnitOfWork unitOfWork = DatabaseManager.getInstance().beginUnitOfWork()) {
+        // Step 3: Check if vehicle is already parked
+        Ticket existingTicket = ticketService.getActiveTicket(normalizedPlate);
+        if (existingTicket != null) {
+          System.err.println("Vehicle is already parked: " + normalizedPlate);
+          System.err.println("Active ticket: " + existingTicket);
+          return null;
+        }
+
+        // Step 4: Register vehicle if not already registered
+        Vehicle vehicle = vehicleService.registerOrGetVehicle(normalizedPlate, vehicleType);
         if (vehicle == null) {
           System.err.println("Failed to register vehicle");
           return null;
         }
-      } else {
+
         // Verify vehicle type matches
         if (vehicle.getVehicleType() != vehicleType) {
           System.err.println("Vehicle type mismatch! Registered as " +
               vehicle.getVehicleType() + " but trying to park as " + vehicleType);
           return null;
         }
-      }
-
-      // Step 3: Check if vehicle is already parked
-      if (ticketService.isVehicleParked(normalizedPlate)) {
-        System.err.println("Vehicle is already parked: " + normalizedPlate);
-        Ticket existingTicket = ticketService.getActiveTicket(normalizedPlate);
-        System.err.println("Active ticket: " + existingTicket);
-        return null;
-      }
-
-      // Step 4: Validate spot
-      ParkingSpot spot = parkingService.getSpotById(spotId);
-      if (spot == null) {
-        System.err.println("Spot not found: " + spotId);
-        return null;
-      }
-
-      if (!spot.isAvailable()) {
-        System.err.println("Spot is not available: " + spotId);
-        return null;
-      }
 
-      // Check vehicle-spot compatibility
-      if (!vehicle.canParkIn(spot.getSpotType()) && spot.getSpotType() != SpotType.RESERVED) {
-        System.err.println("Vehicle cannot park in this spot type. " +
-            "Vehicle: " + vehicleType + ", Spot: " + spot.getSpotType());
-        return null;
-      }
+        // Step 5: Check vehicle-spot compatibility, the claim below only
+        // succeeds while the spot is still of this type
+        SpotType spotType = spot.getSpotType();
+        if (!vehicle.canParkIn(spotType) && spotType != SpotType.RESERVED) {
+          System.err.println("Vehicle cannot park in this spot type. " +
+              "Vehicle: " + vehicleType + ", Spot: " + spotType);
+          return null;
+        }
 
-      // Step 5: Check reservation for RESERVED spots
-      if (spot.getSpotType() == SpotType.RESERVED) {
-        System.out.println("A Misuse of Reserved Spot Fine will be generated later");
+        if (spotType == SpotType.RESERVED) {
+          System.out.println("A Misuse of Reserved Spot Fine will be generated later");
+        }
 
-      }
+        // Step 6: Claim spot, from here a rollback frees it
+        claimed = true;
+        if (!parkingService.confirmClaim(spot, normalizedPlate, spotType)) {
+          return null;
+        }
 
-      // Step 6: Allocate spot
-      boolean allocated = parkingService.allocateSpot(spotId, normalizedPlate);
-      if (!allocated) {
-        System.err.println("Failed to allocate spot: " + spotId);
-        return null;
-      }
+        // Step 7: Create ticket
+        ticket = ticketService.createTicket(normalizedPlate, spot.getSpotId());
+        if (ticket == null) {
+          System.err.println("Failed to create ticket, spot released");
+          return null;
+        }
 
-      // Step 7: Create ticket
-      Ticket ticket = ticketService.createTicket(normalizedPlate, spotId);
-      if (ticket == null) {
-        // Rollback spot allocation
-        parkingService.releaseSpot(spotId);
-        System.err.println("Failed to create ticket, spot released");
-        return null;
+        unitOfWork.commit();
+      } finally {
+        if (!claimed) {
+          parkingService.cancelReservation(spot);
+        }
       }
 
-      parkingService.loadParkingLot();
       parkingService.notifyAllocateSpot();
 
       System.out.println("=== VEHICLE ENTRY SUCCESSFUL ===");
       System.out.println("Plate: " + normalizedPlate);
-      System.out.println("Spot: " + spotId);
+      System.out.println("Spot: " + ticket.getSpotId());
       System.out.println("Ticket: " + ticket.getTicketId());
       System.out.println("Entry Time: " + TimeUtil.formatForDisplay(ticket.getEntryTime()));
       System.out.println("Fine Scheme: " + ticket.getFineScheme());
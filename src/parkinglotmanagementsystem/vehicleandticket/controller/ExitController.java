@@ -1,13 +1,18 @@
 package parkinglotmanagementsystem.vehicleandticket.controller;
 
+import parkinglotmanagementsystem.fineandpayment.model.Bill;
 import parkinglotmanagementsystem.fineandpayment.model.Fine;
 import parkinglotmanagementsystem.fineandpayment.model.Payment;
 import parkinglotmanagementsystem.fineandpayment.model.PaymentMethod;
 import parkinglotmanagementsystem.fineandpayment.service.*;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.UnitOfWork;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.PlateValidator;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.parking.service.ParkingService;
+import parkinglotmanagementsystem.vehicleandticket.model.ExitResult;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 import parkinglotmanagementsystem.vehicleandticket.model.Vehicle;
 import parkinglotmanagementsystem.vehicleandticket.service.TicketService;
@@ -15,9 +20,7 @@ import parkinglotmanagementsystem.vehicleandticket.service.VehicleService;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class ExitController {
 
@@ -26,6 +29,7 @@ public class ExitController {
   private TicketService ticketService;
   private BillingService billingService;
   private PaymentService paymentService;
+  private QuoteCache quoteCache;
 
   public ExitController(ParkingService parkingService, FineManager fineManager, PaymentService paymentService) {
     this.vehicleService = new VehicleService();
@@ -33,146 +37,166 @@ public class ExitController {
     this.billingService = new BillingService(fineManager);
     this.parkingService = parkingService;
     this.paymentService = paymentService;
+    this.quoteCache = new QuoteCache(Constants.BILL_QUOTE_TTL_MILLIS, Constants.BILL_QUOTE_CACHE_SIZE);
   }
 
-  public Map<String, Object> calculateBill(String plateNumber) {
-    Map<String, Object> billDetails = new HashMap<>();
-
-    try {
-      // Validate plate number
-      String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
-
-      // Find active ticket
-      Ticket ticket = ticketService.getActiveTicket(normalizedPlate);
-      if (ticket == null) {
-        billDetails.put("error", "No active parking session found for: " + normalizedPlate);
-        return billDetails;
-      }
+  /**
+   * Calculates the bill of the vehicle's active parking session as of now.
+   * The bill is meant to be calculated once per exit and then passed to
+   * processExit and generateReceipt. Calculating only reads, and a quote
+   * asked for again within a few seconds is served from the quote cache.
+   *
+   * @throws IllegalArgumentException if the plate number is invalid
+   * @throws IllegalStateException    if there is no billable session
+   */
+  public Bill calculateBill(String plateNumber) {
+    // Validate plate number
+    String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
+
+    Bill cachedBill = quoteCache.get(normalizedPlate);
+    if (cachedBill != null) {
+      return cachedBill;
+    }
 
-      // Get vehicle
-      Vehicle vehicle = vehicleService.getVehicle(normalizedPlate);
-      if (vehicle == null) {
-        billDetails.put("error", "Vehicle not found: " + normalizedPlate);
-        return billDetails;
-      }
+    // Find active ticket
+    Ticket ticket = ticketService.getActiveTicket(normalizedPlate);
+    if (ticket == null) {
+      throw new IllegalStateException("No active parking session found for: " + normalizedPlate);
+    }
 
-      // Get parking spot
-      ParkingSpot spot = parkingService.getSpotById(ticket.getSpotId());
-      if (spot == null) {
-        billDetails.put("error", "Parking spot not found: " + ticket.getSpotId());
-        return billDetails;
-      }
+    // Get vehicle
+    Vehicle vehicle = vehicleService.getVehicle(normalizedPlate);
+    if (vehicle == null) {
+      throw new IllegalStateException("Vehicle not found: " + normalizedPlate);
+    }
 
-      // Calculate bill using BillingService
-      LocalDateTime exitTime = TimeUtil.now();
-      billDetails = billingService.generateBill(ticket, vehicle, spot, exitTime);
+    // Get parking spot
+    ParkingSpot spot = parkingService.getSpotById(ticket.getSpotId());
+    if (spot == null) {
+      throw new IllegalStateException("Parking spot not found: " + ticket.getSpotId());
+    }
 
-      return billDetails;
+    // Calculate bill using BillingService
+    LocalDateTime exitTime = TimeUtil.now();
+    Bill bill = billingService.generateBill(ticket, vehicle, spot, exitTime);
+    quoteCache.put(bill);
+    return bill;
+  }
 
+  /**
+   * Calculates the bill and settles it straight away.
+   */
+  public ExitResult processExit(String plateNumber, PaymentMethod paymentMethod, double paymentAmount) {
+    Bill bill;
+    try {
+      bill = calculateBill(plateNumber);
     } catch (IllegalArgumentException e) {
-      billDetails.put("error", "Invalid plate number: " + e.getMessage());
-      return billDetails;
-    } catch (Exception e) {
-      billDetails.put("error", "Error calculating bill: " + e.getMessage());
-      e.printStackTrace();
-      return billDetails;
+      System.err.println("Invalid input: " + e.getMessage());
+      return null;
+    } catch (IllegalStateException e) {
+      System.err.println("Cannot process exit: " + e.getMessage());
+      return null;
     }
+
+    return processExit(bill, paymentMethod, paymentAmount);
   }
 
-  public Payment processExit(String plateNumber, PaymentMethod paymentMethod, double paymentAmount) {
+  /**
+   * Settles the bill and closes the parking session in a single
+   * transaction: the new fines, payment, paid fines, ticket, spot and
+   * balance are committed together or not at all. A session that was already closed,
+   * e.g. by paying the same bill twice, is refused. The bill is left as it
+   * is, the vehicle's new balance comes back with the payment.
+   */
+  public ExitResult processExit(Bill bill, PaymentMethod paymentMethod, double paymentAmount) {
     try {
-      // Validate plate number
-      String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
-
-      // Calculate bill
-      Map<String, Object> bill = calculateBill(normalizedPlate);
-      if (bill.containsKey("error")) {
-        System.err.println("Cannot process exit: " + bill.get("error"));
-        return null;
-      }
+      Payment payment;
+      double newBalance;
+      Ticket ticket = bill.getTicket();
+      Vehicle vehicle = bill.getVehicle();
+
+      try (UnitOfWork unitOfWork = DatabaseManager.getInstance().beginUnitOfWork()) {
+        // the quote only computed the new fines, they are saved now
+        List<Fine> payableFines = billingService.persistFines(bill);
+        if (payableFines == null) {
+          System.err.println("Failed to save fines for ticket: " + ticket.getTicketId());
+          return null;
+        }
 
-      Ticket ticket = (Ticket) bill.get("ticket");
-      Vehicle vehicle = (Vehicle) bill.get("vehicle");
-      double parkingFee = (Double) bill.get("parkingFee");
-      @SuppressWarnings("unchecked")
-      List<Fine> fines = (List<Fine>) bill.get("unpaidFines");
+        double parkingFee = bill.getParkingFee();
 
-      double balance = vehicle.getBalance();
-      double paidParkingFee = 0.0;
-      if (balance < 0) {
-        paidParkingFee = Math.min(-balance, paymentAmount);
-      }
-      paymentAmount += balance;
+        double balance = bill.getBalance();
+        double paidParkingFee = 0.0;
+        if (balance < 0) {
+          paidParkingFee = Math.min(-balance, paymentAmount);
+        }
+        paymentAmount += balance;
 
-      if (paymentAmount > 0) {
-        paidParkingFee += Math.min(paymentAmount, parkingFee);
-      }
-      paymentAmount -= parkingFee;
+        if (paymentAmount > 0) {
+          paidParkingFee += Math.min(paymentAmount, parkingFee);
+        }
+        paymentAmount -= parkingFee;
+
+        double fineAmount = 0.0;
+        List<Integer> paidFineIds = new ArrayList<>();
+        for (Fine fine : payableFines) {
+          if (paymentAmount < fine.getFineAmount()) {
+            break;
+          }
+          paidFineIds.add(fine.getFineId());
+          fineAmount += fine.getFineAmount();
+          paymentAmount -= fine.getFineAmount();
+        }
 
-      double fineAmount = 0.0;
-      List<Integer> paidFineIds = new ArrayList<>();
-      for (Fine fine : fines) {
-        if (paymentAmount < fine.getFineAmount()) {
-          break;
+        // Process payment
+        payment = paymentService.processPayment(
+            ticket.getTicketId(),
+            paidFineIds,
+            paidParkingFee,
+            fineAmount,
+            paymentMethod);
+
+        if (payment == null) {
+          System.err.println("Payment processing failed");
+          return null;
         }
-        paidFineIds.add(fine.getFineId());
-        fineAmount += fine.getFineAmount();
-        paymentAmount -= fine.getFineAmount();
-      }
 
-      // Process payment
-      Payment payment = paymentService.processPayment(
-          ticket.getTicketId(),
-          paidFineIds,
-          paidParkingFee,
-          fineAmount,
-          paymentMethod);
-
-      if (payment == null) {
-        System.err.println("Payment processing failed");
-        return null;
-      }
+        // Close ticket
+        if (!ticketService.closeTicket(ticket.getTicketId(), bill.getExitTime())) {
+          System.err.println("Failed to close ticket: " + ticket.getTicketId());
+          return null;
+        }
 
-      LocalDateTime exitTime = (LocalDateTime) bill.get("exitTime");
-      long hoursParked = (Long) bill.get("hoursParked");
+        // Release spot
+        if (!parkingService.releaseSpot(ticket.getSpotId())) {
+          System.err.println("Failed to release spot: " + ticket.getSpotId());
+          return null;
+        }
 
-      // Close ticket
-      boolean ticketClosed = ticketService.closeTicket(ticket.getTicketId(), exitTime);
-      if (!ticketClosed) {
-        System.err.println("Failed to close ticket: " + ticket.getTicketId());
-        // Payment already processed, log this issue
-        return payment;
-      }
+        // Update balance, on a copy so the bill's vehicle stays as quoted
+        newBalance = paymentAmount;
+        if (!vehicleService.updateBalance(vehicle, newBalance)) {
+          System.err.println("Failed to update vehicle: " + vehicle.getPlateNumber());
+          return null;
+        }
 
-      // Release spot
-      boolean spotReleased = parkingService.releaseSpot(ticket.getSpotId());
-      if (!spotReleased) {
-        // Payment and ticket already processed
-        System.err.println("Failed to release spot: " + ticket.getSpotId());
+        unitOfWork.commit();
       }
 
-      // Update balance
-      vehicle.setBalance(paymentAmount);
-      boolean vehicleUpdated = vehicleService.updateVehicle(vehicle);
-      if (!vehicleUpdated) {
-        System.err.println("Failed to update vehicle: " + vehicle.getPlateNumber());
-      }
+      quoteCache.invalidate(bill.getPlateNumber());
 
       parkingService.notifyReleaseSpot();
       paymentService.notifyProcessPayment(payment);
 
       System.out.println("=== VEHICLE EXIT SUCCESSFUL ===");
-      System.out.println("Plate: " + normalizedPlate);
+      System.out.println("Plate: " + bill.getPlateNumber());
       System.out.println("Spot: " + ticket.getSpotId());
-      System.out.println("Duration: " + hoursParked + " hours");
+      System.out.println("Duration: " + bill.getHoursParked() + " hours");
       System.out.println("Total Paid: RM " + String.format("%.2f", payment.getTotalAmount()));
       System.out.println("Payment Method: " + paymentMethod);
 
-      return payment;
+      return new ExitResult(payment, newBalance);
 
-    } catch (IllegalArgumentException e) {
-      System.err.println("Invalid input: " + e.getMessage());
-      return null;
     } catch (Exception e) {
       System.err.println("Unexpected error during vehicle exit");
       e.printStackTrace();
@@ -180,23 +204,20 @@ public class ExitController {
     }
   }
 
-  public String getBillSummary(Map<String, Object> billDetails) {
-    return billingService.formatBill(billDetails);
+  public String getBillSummary(Bill bill) {
+    return billingService.formatBill(bill);
   }
 
-  public String generateReceipt(Payment payment, Map<String, Object> billDetails) {
-    Vehicle oldVehicle = (Vehicle) billDetails.get("vehicle");
-    Vehicle newVehicle = vehicleService.getVehicle(oldVehicle.getPlateNumber());
-    LocalDateTime entryTime = (LocalDateTime) billDetails.get("entryTime");
-    LocalDateTime exitTime = (LocalDateTime) billDetails.get("exitTime");
-    Long hoursParked = (Long) billDetails.get("hoursParked");
-
+  /**
+   * Receipt for a bill settled by processExit.
+   */
+  public String generateReceipt(ExitResult result, Bill bill) {
     return paymentService.generateReceipt(
-        payment,
-        newVehicle.getPlateNumber(),
-        entryTime,
-        exitTime,
-        hoursParked,
-        newVehicle.getBalance());
+        result.getPayment(),
+        bill.getPlateNumber(),
+        bill.getEntryTime(),
+        bill.getExitTime(),
+        bill.getHoursParked(),
+        result.getNewBalance());
   }
 }
@@ -2,36 +2,44 @@ package parkinglotmanagementsystem.vehicleandticket.dao;
 
 import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
 import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.ResultCursor;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class TicketDAO {
 
-  private Connection connection;
+  private DatabaseManager dbManager;
 
   public TicketDAO() {
-    this.connection = DatabaseManager.getInstance().getConnection();
+    this.dbManager = DatabaseManager.getInstance();
   }
 
   public boolean insertTicket(Ticket ticket) {
     String sql = """
             INSERT INTO tickets
-            (ticket_id, plate_number, spot_id, entry_time, exit_time, fine_scheme)
-            VALUES (?, ?, ?, ?, ?, ?);
+            (ticket_id, plate_number, spot_id, entry_time, exit_time, fine_scheme, tariff_version)
+            VALUES (?, ?, ?, ?, ?, ?, ?);
         """;
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getWriteConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, ticket.getTicketId());
       pstmt.setString(2, ticket.getPlateNumber());
       pstmt.setString(3, ticket.getSpotId());
       pstmt.setString(4, TimeUtil.formatForDatabase(ticket.getEntryTime()));
       pstmt.setString(5, TimeUtil.formatForDatabase(ticket.getExitTime()));
       pstmt.setString(6, ticket.getFineScheme().name());
+      pstmt.setInt(7, ticket.getTariffVersion());
 
       pstmt.executeUpdate();
       return true;
@@ -43,9 +51,11 @@ public class TicketDAO {
   }
 
   public boolean updateExitTime(String ticketId, LocalDateTime exitTime) {
-    String sql = "UPDATE tickets SET exit_time = ? WHERE ticket_id = ?;";
+    // a ticket is closed once, a second exit of the same session changes nothing
+    String sql = "UPDATE tickets SET exit_time = ? WHERE ticket_id = ? AND exit_time IS NULL;";
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getWriteConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, TimeUtil.formatForDatabase(exitTime));
       pstmt.setString(2, ticketId);
 
@@ -66,7 +76,8 @@ public class TicketDAO {
             LIMIT 1;
         """;
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, plateNumber);
       ResultSet rs = pstmt.executeQuery();
 
@@ -81,10 +92,35 @@ public class TicketDAO {
     return null;
   }
 
+  public Ticket findActiveTicketForSpot(String spotId) {
+    String sql = """
+            SELECT * FROM tickets
+            WHERE spot_id = ? AND exit_time IS NULL
+            ORDER BY entry_time DESC
+            LIMIT 1;
+        """;
+
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
+      pstmt.setString(1, spotId);
+      ResultSet rs = pstmt.executeQuery();
+
+      if (rs.next()) {
+        return extractTicketFromResultSet(rs);
+      }
+    } catch (SQLException e) {
+      System.err.println("Failed to find active ticket for spot: " + spotId);
+      e.printStackTrace();
+    }
+
+    return null;
+  }
+
   public Ticket findTicketById(String ticketId) {
     String sql = "SELECT * FROM tickets WHERE ticket_id = ?;";
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, ticketId);
       ResultSet rs = pstmt.executeQuery();
 
@@ -100,56 +136,146 @@ public class TicketDAO {
   }
 
   public List<Ticket> getAllActiveTickets() {
+    List<Ticket> tickets = new ArrayList<>();
+    forEachActiveTicket(Constants.DB_FETCH_SIZE, tickets::add);
+    return tickets;
+  }
+
+  /**
+   * Visits active tickets one at a time, newest first, without holding them
+   * all in memory.
+   *
+   * @return false if the query failed
+   */
+  public boolean forEachActiveTicket(int fetchSize, Consumer<? super Ticket> visitor) {
     String sql = """
             SELECT * FROM tickets
             WHERE exit_time IS NULL
-            ORDER BY entry_time DESC;
+            ORDER BY entry_time DESC, ticket_id DESC;
         """;
 
-    List<Ticket> tickets = new ArrayList<>();
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
+      ResultCursor.forEach(pstmt, fetchSize, this::extractTicketFromResultSet, visitor);
+      return true;
+    } catch (SQLException e) {
+      System.err.println("Failed to get active tickets");
+      e.printStackTrace();
+      return false;
+    }
+  }
 
-    try (Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery(sql)) {
+  /**
+   * Visits active tickets that entered before the given time, oldest first,
+   * together with the amount of their OVERSTAY fine (null if they have
+   * none yet). Tickets whose OVERSTAY fine is already paid are left out.
+   *
+   * @return false if the query failed
+   */
+  public boolean forEachOverstayingTicket(LocalDateTime enteredBefore, int fetchSize,
+      BiConsumer<? super Ticket, ? super Double> visitor) {
+    String sql = """
+            SELECT t.*, f.fine_amount AS overstay_amount
+            FROM tickets t
+            LEFT JOIN fines f ON f.ticket_id = t.ticket_id AND f.fine_type = 'OVERSTAY'
+            WHERE t.exit_time IS NULL AND t.entry_time < ? AND f.is_paid IS NOT 1
+            ORDER BY t.entry_time, t.ticket_id;
+        """;
+
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
+      pstmt.setString(1, TimeUtil.formatForDatabase(enteredBefore));
+      ResultCursor.forEach(pstmt, fetchSize, this::extractOverstayFromResultSet,
+          row -> visitor.accept(row.getKey(), row.getValue()));
+      return true;
+    } catch (SQLException e) {
+      System.err.println("Failed to get overstaying tickets");
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  /**
+   * One page of active tickets, newest first. Pages are keyed on a row
+   * already seen rather than an offset from the start, so scrolling costs
+   * the same however deep it is.
+   *
+   * @param afterEntryTime entry time of the row to continue after, or null
+   *                       to start from the newest ticket
+   * @param afterTicketId  ticket ID of the row to continue after
+   * @param skip           rows to skip after it first, 0 unless jumping ahead
+   * @return the page, or null if it could not be read
+   */
+  public List<Ticket> getActiveTicketsPage(LocalDateTime afterEntryTime, String afterTicketId, int skip, int limit) {
+    String firstPageSql = """
+            SELECT * FROM tickets
+            WHERE exit_time IS NULL
+            ORDER BY entry_time DESC, ticket_id DESC
+            LIMIT ? OFFSET ?;
+        """;
+    String nextPageSql = """
+            SELECT * FROM tickets
+            WHERE exit_time IS NULL AND (entry_time, ticket_id) < (?, ?)
+            ORDER BY entry_time DESC, ticket_id DESC
+            LIMIT ? OFFSET ?;
+        """;
+
+    List<Ticket> tickets = new ArrayList<>();
 
-      while (rs.next()) {
-        tickets.add(extractTicketFromResultSet(rs));
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(afterEntryTime == null ? firstPageSql : nextPageSql)) {
+      int index = 1;
+      if (afterEntryTime != null) {
+        pstmt.setString(index++, TimeUtil.formatForDatabase(afterEntryTime));
+        pstmt.setString(index++, afterTicketId);
       }
+      pstmt.setInt(index++, limit);
+      pstmt.setInt(index, skip);
+      ResultCursor.forEach(pstmt, limit, this::extractTicketFromResultSet, tickets::add);
     } catch (SQLException e) {
-      System.err.println("Failed to get active tickets");
+      System.err.println("Failed to get page of active tickets");
       e.printStackTrace();
+      return null;
     }
 
     return tickets;
   }
 
   public List<Ticket> getTicketsByPlate(String plateNumber) {
+    List<Ticket> tickets = new ArrayList<>();
+    forEachTicketByPlate(plateNumber, Constants.DB_FETCH_SIZE, tickets::add);
+    return tickets;
+  }
+
+  /**
+   * Visits every ticket of the plate one at a time, newest first.
+   *
+   * @return false if the query failed
+   */
+  public boolean forEachTicketByPlate(String plateNumber, int fetchSize, Consumer<? super Ticket> visitor) {
     String sql = """
             SELECT * FROM tickets
             WHERE plate_number = ?
             ORDER BY entry_time DESC;
         """;
 
-    List<Ticket> tickets = new ArrayList<>();
-
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, plateNumber);
-      ResultSet rs = pstmt.executeQuery();
-
-      while (rs.next()) {
-        tickets.add(extractTicketFromResultSet(rs));
-      }
+      ResultCursor.forEach(pstmt, fetchSize, this::extractTicketFromResultSet, visitor);
+      return true;
     } catch (SQLException e) {
       System.err.println("Failed to get tickets for plate: " + plateNumber);
       e.printStackTrace();
+      return false;
     }
-
-    return tickets;
   }
 
   public int getActiveTicketCount() {
     String sql = "SELECT COUNT(*) FROM tickets WHERE exit_time IS NULL;";
 
-    try (Statement stmt = connection.createStatement();
+    try (Connection conn = dbManager.getReadConnection();
+        Statement stmt = conn.createStatement();
         ResultSet rs = stmt.executeQuery(sql)) {
 
       if (rs.next()) {
@@ -166,7 +292,8 @@ public class TicketDAO {
   public int getTotalTicketCount() {
     String sql = "SELECT COUNT(*) FROM tickets;";
 
-    try (Statement stmt = connection.createStatement();
+    try (Connection conn = dbManager.getReadConnection();
+        Statement stmt = conn.createStatement();
         ResultSet rs = stmt.executeQuery(sql)) {
 
       if (rs.next()) {
@@ -184,6 +311,12 @@ public class TicketDAO {
     return findActiveTicket(plateNumber) != null;
   }
 
+  private Map.Entry<Ticket, Double> extractOverstayFromResultSet(ResultSet rs) throws SQLException {
+    double amount = rs.getDouble("overstay_amount");
+    Double overstayAmount = rs.wasNull() ? null : amount;
+    return new AbstractMap.SimpleImmutableEntry<>(extractTicketFromResultSet(rs), overstayAmount);
+  }
+
   private Ticket extractTicketFromResultSet(ResultSet rs) throws SQLException {
     String ticketId = rs.getString("ticket_id");
     String plateNumber = rs.getString("plate_number");
@@ -191,7 +324,8 @@ public class TicketDAO {
     LocalDateTime entryTime = TimeUtil.parseFromDatabase(rs.getString("entry_time"));
     LocalDateTime exitTime = TimeUtil.parseFromDatabase(rs.getString("exit_time"));
     FineScheme fineScheme = FineScheme.valueOf(rs.getString("fine_scheme"));
+    int tariffVersion = rs.getInt("tariff_version");
 
-    return new Ticket(ticketId, plateNumber, spotId, entryTime, exitTime, fineScheme);
+    return new Ticket(ticketId, plateNumber, spotId, entryTime, exitTime, fineScheme, tariffVersion);
   }
 }
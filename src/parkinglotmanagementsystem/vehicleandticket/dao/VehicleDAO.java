@@ -12,16 +12,17 @@ import java.sql.*;
 
 public class VehicleDAO {
 
-  private Connection connection;
+  private DatabaseManager dbManager;
 
   public VehicleDAO() {
-    this.connection = DatabaseManager.getInstance().getConnection();
+    this.dbManager = DatabaseManager.getInstance();
   }
 
   public boolean insertVehicle(Vehicle vehicle) {
     String sql = "INSERT INTO vehicles (plate_number, vehicle_type) VALUES (?, ?);";
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getWriteConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, vehicle.getPlateNumber());
       pstmt.setString(2, vehicle.getVehicleType().name());
 
@@ -39,6 +40,34 @@ public class VehicleDAO {
     }
   }
 
+  /**
+   * Registers the vehicle if its plate is new and returns the stored record
+   * either way, in one statement.
+   */
+  public Vehicle upsertVehicle(Vehicle vehicle) {
+    String sql = """
+        INSERT INTO vehicles (plate_number, vehicle_type) VALUES (?, ?)
+        ON CONFLICT(plate_number) DO UPDATE SET plate_number = excluded.plate_number
+        RETURNING *;
+        """;
+
+    try (Connection conn = dbManager.getWriteConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
+      pstmt.setString(1, vehicle.getPlateNumber());
+      pstmt.setString(2, vehicle.getVehicleType().name());
+      ResultSet rs = pstmt.executeQuery();
+
+      if (rs.next()) {
+        return extractVehicleFromResultSet(rs);
+      }
+    } catch (SQLException e) {
+      System.err.println("Failed to upsert vehicle: " + vehicle.getPlateNumber());
+      e.printStackTrace();
+    }
+
+    return null;
+  }
+
   public boolean updateVehicle(Vehicle vehicle) {
     String sql = """
         UPDATE vehicles
@@ -46,7 +75,8 @@ public class VehicleDAO {
         WHERE plate_number = ?;
         """;
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getWriteConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, vehicle.getVehicleType().name());
       pstmt.setDouble(2, vehicle.getBalance());
       pstmt.setString(3, vehicle.getPlateNumber());
@@ -63,7 +93,8 @@ public class VehicleDAO {
   public Vehicle findVehicleByPlate(String plateNumber) {
     String sql = "SELECT * FROM vehicles WHERE plate_number = ?;";
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getReadConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, plateNumber);
       ResultSet rs = pstmt.executeQuery();
 
@@ -85,7 +116,8 @@ public class VehicleDAO {
   public boolean deleteVehicle(String plateNumber) {
     String sql = "DELETE FROM vehicles WHERE plate_number = ?;";
 
-    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+    try (Connection conn = dbManager.getWriteConnection();
+        PreparedStatement pstmt = conn.prepareStatement(sql)) {
       pstmt.setString(1, plateNumber);
       int rowsAffected = pstmt.executeUpdate();
       return rowsAffected > 0;
@@ -99,7 +131,8 @@ public class VehicleDAO {
   public int getTotalVehicleCount() {
     String sql = "SELECT COUNT(*) FROM vehicles;";
 
-    try (Statement stmt = connection.createStatement();
+    try (Connection conn = dbManager.getReadConnection();
+        Statement stmt = conn.createStatement();
         ResultSet rs = stmt.executeQuery(sql)) {
 
       if (rs.next()) {
@@ -0,0 +1,31 @@
+package parkinglotmanagementsystem.vehicleandticket.model;
+
+import parkinglotmanagementsystem.fineandpayment.model.Payment;
+
+/**
+ * What a settled exit produced: the payment and the balance the vehicle
+ * was left with, credit if positive and debt if negative.
+ */
+public class ExitResult {
+
+  private final Payment payment;
+  private final double newBalance;
+
+  public ExitResult(Payment payment, double newBalance) {
+    this.payment = payment;
+    this.newBalance = newBalance;
+  }
+
+  public Payment getPayment() {
+    return payment;
+  }
+
+  public double getNewBalance() {
+    return newBalance;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ExitResult[%s, NewBalance=RM%.2f]", payment, newBalance);
+  }
+}
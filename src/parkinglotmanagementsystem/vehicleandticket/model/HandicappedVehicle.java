@@ -1,5 +1,6 @@
 package parkinglotmanagementsystem.vehicleandticket.model;
 
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.parking.model.SpotType;
 
@@ -19,11 +20,11 @@ public class HandicappedVehicle extends Vehicle {
   }
 
   @Override
-  public double getParkingRate(ParkingSpot spot) {
+  public double getParkingRate(ParkingSpot spot, Tariff tariff) {
     if (spot.getSpotType() == SpotType.HANDICAPPED) {
       return 0.0; // FREE in handicapped spots
     } else {
-      return 2.0; // RM 2/hour in other spots
+      return tariff.getHandicappedVehicleRate(); // RM 2/hour in other spots
     }
   }
 }
@@ -1,5 +1,6 @@
 package parkinglotmanagementsystem.vehicleandticket.model;
 
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.parking.model.SpotType;
 
@@ -19,7 +20,7 @@ public class Motorcycle extends Vehicle {
   }
 
   @Override
-  public double getParkingRate(ParkingSpot spot) {
-    return spot.getHourlyRate();
+  public double getParkingRate(ParkingSpot spot, Tariff tariff) {
+    return tariff.getHourlyRate(spot.getSpotType());
   }
 }
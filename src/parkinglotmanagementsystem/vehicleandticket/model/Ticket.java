@@ -12,25 +12,28 @@ public class Ticket {
   private LocalDateTime entryTime;
   private LocalDateTime exitTime; // null if still parked
   private FineScheme fineScheme;
+  private int tariffVersion; // rates and fines locked at entry
 
   public Ticket(String ticketId, String plateNumber, String spotId,
-      LocalDateTime entryTime, FineScheme fineScheme) {
+      LocalDateTime entryTime, FineScheme fineScheme, int tariffVersion) {
     this.ticketId = ticketId;
     this.plateNumber = plateNumber;
     this.spotId = spotId;
     this.entryTime = entryTime;
     this.exitTime = null; // Still parked
     this.fineScheme = fineScheme;
+    this.tariffVersion = tariffVersion;
   }
 
   public Ticket(String ticketId, String plateNumber, String spotId,
-      LocalDateTime entryTime, LocalDateTime exitTime, FineScheme fineScheme) {
+      LocalDateTime entryTime, LocalDateTime exitTime, FineScheme fineScheme, int tariffVersion) {
     this.ticketId = ticketId;
     this.plateNumber = plateNumber;
     this.spotId = spotId;
     this.entryTime = entryTime;
     this.exitTime = exitTime;
     this.fineScheme = fineScheme;
+    this.tariffVersion = tariffVersion;
   }
 
   public boolean hasExited() {
@@ -78,12 +81,16 @@ public class Ticket {
     return fineScheme;
   }
 
+  public int getTariffVersion() {
+    return tariffVersion;
+  }
+
   @Override
   public String toString() {
-    return String.format("Ticket[%s, Plate=%s, Spot=%s, Entry=%s, Exit=%s, Scheme=%s]",
+    return String.format("Ticket[%s, Plate=%s, Spot=%s, Entry=%s, Exit=%s, Scheme=%s, Tariff=v%d]",
         ticketId, plateNumber, spotId,
         entryTime != null ? entryTime.toString() : "N/A",
         exitTime != null ? exitTime.toString() : "Still Parked",
-        fineScheme);
+        fineScheme, tariffVersion);
   }
 }
@@ -1,5 +1,6 @@
 package parkinglotmanagementsystem.vehicleandticket.model;
 
+import parkinglotmanagementsystem.fineandpayment.model.Tariff;
 import parkinglotmanagementsystem.parking.model.ParkingSpot;
 import parkinglotmanagementsystem.parking.model.SpotType;
 
@@ -23,7 +24,10 @@ public abstract class Vehicle {
 
   public abstract boolean canParkIn(SpotType spotType);
 
-  public abstract double getParkingRate(ParkingSpot spot);
+  /**
+   * Hourly rate of this vehicle in the spot under the given tariff.
+   */
+  public abstract double getParkingRate(ParkingSpot spot, Tariff tariff);
 
   // Getters and Setters
 
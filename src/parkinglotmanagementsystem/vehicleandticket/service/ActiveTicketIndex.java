@@ -0,0 +1,137 @@
+package parkinglotmanagementsystem.vehicleandticket.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import parkinglotmanagementsystem.main.util.Constants;
+import parkinglotmanagementsystem.vehicleandticket.dao.TicketDAO;
+import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
+
+/**
+ * The open tickets, by plate and by spot, loaded once at startup and kept
+ * up to date as tickets are issued and closed. Changes are applied after
+ * their transaction commits, while the writer is still held, so an entry
+ * checking the index inside its own transaction sees every committed
+ * ticket. Lookups hand out copies, the indexed tickets are never changed.
+ */
+public class ActiveTicketIndex {
+
+  private static volatile ActiveTicketIndex instance;
+
+  private final TicketDAO ticketDAO;
+  private final Map<String, Ticket> ticketsByPlate;
+  private final Map<String, Ticket> ticketsBySpot;
+  private final Map<String, Ticket> ticketsById;
+  private volatile boolean loaded;
+
+  public ActiveTicketIndex() {
+    this.ticketDAO = new TicketDAO();
+    this.ticketsByPlate = new ConcurrentHashMap<>();
+    this.ticketsBySpot = new ConcurrentHashMap<>();
+    this.ticketsById = new ConcurrentHashMap<>();
+    reload();
+  }
+
+  public static ActiveTicketIndex getInstance() {
+    if (instance == null) {
+      synchronized (ActiveTicketIndex.class) {
+        if (instance == null) {
+          instance = new ActiveTicketIndex();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Rebuilds the index from the open tickets in the database.
+   *
+   * @return false if they could not be read, the index is then not used
+   *         until a reload succeeds
+   */
+  public synchronized boolean reload() {
+    Map<String, Ticket> active = new HashMap<>();
+    // newest first, so an older duplicate never replaces the latest ticket
+    boolean read = ticketDAO.forEachActiveTicket(Constants.DB_FETCH_SIZE,
+        ticket -> active.putIfAbsent(ticket.getPlateNumber(), ticket));
+
+    if (!read) {
+      loaded = false;
+      System.err.println("Failed to load active tickets, reading them from the database");
+      return false;
+    }
+
+    ticketsByPlate.clear();
+    ticketsBySpot.clear();
+    ticketsById.clear();
+    for (Ticket ticket : active.values()) {
+      put(ticket);
+    }
+
+    loaded = true;
+    System.out.println("Active tickets loaded: " + active.size());
+    return true;
+  }
+
+  /**
+   * @return false if the index could not be loaded and must not be trusted
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * @return a copy of the open ticket, or null if the vehicle is not parked
+   */
+  public Ticket getByPlate(String plateNumber) {
+    return copyOf(ticketsByPlate.get(plateNumber));
+  }
+
+  /**
+   * @return a copy of the open ticket, or null if the spot is free
+   */
+  public Ticket getBySpot(String spotId) {
+    return copyOf(ticketsBySpot.get(spotId));
+  }
+
+  public boolean containsPlate(String plateNumber) {
+    return ticketsByPlate.containsKey(plateNumber);
+  }
+
+  public int size() {
+    return ticketsById.size();
+  }
+
+  public synchronized void add(Ticket ticket) {
+    put(copyOf(ticket));
+  }
+
+  public synchronized void remove(String ticketId) {
+    Ticket ticket = ticketsById.remove(ticketId);
+    if (ticket == null) {
+      return;
+    }
+
+    ticketsByPlate.remove(ticket.getPlateNumber(), ticket);
+    ticketsBySpot.remove(ticket.getSpotId(), ticket);
+  }
+
+  private void put(Ticket ticket) {
+    Ticket replaced = ticketsByPlate.put(ticket.getPlateNumber(), ticket);
+    if (replaced != null) {
+      ticketsById.remove(replaced.getTicketId());
+      ticketsBySpot.remove(replaced.getSpotId(), replaced);
+    }
+    ticketsBySpot.put(ticket.getSpotId(), ticket);
+    ticketsById.put(ticket.getTicketId(), ticket);
+  }
+
+  private static Ticket copyOf(Ticket ticket) {
+    if (ticket == null) {
+      return null;
+    }
+    return new Ticket(ticket.getTicketId(), ticket.getPlateNumber(), ticket.getSpotId(),
+        ticket.getEntryTime(), ticket.getExitTime(), ticket.getFineScheme(), ticket.getTariffVersion());
+  }
+}
@@ -1,7 +1,10 @@
 package parkinglotmanagementsystem.vehicleandticket.service;
 
 import parkinglotmanagementsystem.fineandpayment.model.FineScheme;
-import parkinglotmanagementsystem.main.dao.SystemConfigDAO;
+import parkinglotmanagementsystem.fineandpayment.service.TariffRegistry;
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
+import parkinglotmanagementsystem.main.dao.SystemConfigCache;
+import parkinglotmanagementsystem.main.util.Constants;
 import parkinglotmanagementsystem.main.util.TicketGenerator;
 import parkinglotmanagementsystem.main.util.TimeUtil;
 import parkinglotmanagementsystem.vehicleandticket.dao.TicketDAO;
@@ -9,33 +12,40 @@ import parkinglotmanagementsystem.vehicleandticket.model.Ticket;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public class TicketService {
 
   private TicketDAO ticketDAO;
-  private SystemConfigDAO configDAO;
+  private SystemConfigCache configCache;
+  private TariffRegistry tariffRegistry;
+  private ActiveTicketIndex activeTickets;
+  private DatabaseManager dbManager;
 
   public TicketService() {
     this.ticketDAO = new TicketDAO();
-    this.configDAO = new SystemConfigDAO();
+    this.configCache = SystemConfigCache.getInstance();
+    this.tariffRegistry = TariffRegistry.getInstance();
+    this.activeTickets = ActiveTicketIndex.getInstance();
+    this.dbManager = DatabaseManager.getInstance();
   }
 
+  /**
+   * Issues a ticket for the vehicle. The caller checks that the vehicle is
+   * not already parked, inside the same transaction as this insert.
+   */
   public Ticket createTicket(String plateNumber, String spotId) {
-    // Check if vehicle is already parked
-    if (isVehicleParked(plateNumber)) {
-      System.err.println("Vehicle is already parked: " + plateNumber);
-      return null;
-    }
-
     String ticketId = TicketGenerator.generateTicketId(plateNumber);
 
     LocalDateTime entryTime = TimeUtil.now();
 
-    FineScheme currentScheme = configDAO.getCurrentFineScheme();
+    FineScheme currentScheme = configCache.getCurrentFineScheme();
+    int tariffVersion = tariffRegistry.getActiveVersion();
 
-    Ticket ticket = new Ticket(ticketId, plateNumber, spotId, entryTime, currentScheme);
+    Ticket ticket = new Ticket(ticketId, plateNumber, spotId, entryTime, currentScheme, tariffVersion);
 
     if (ticketDAO.insertTicket(ticket)) {
+      dbManager.runAfterCommit(() -> activeTickets.add(ticket));
       System.out.println("Ticket created: " + ticketId);
       return ticket;
     } else {
@@ -45,14 +55,29 @@ public class TicketService {
   }
 
   public Ticket getActiveTicket(String plateNumber) {
+    if (activeTickets.isLoaded()) {
+      return activeTickets.getByPlate(plateNumber);
+    }
     return ticketDAO.findActiveTicket(plateNumber);
   }
 
+  /**
+   * @return the open ticket of the vehicle parked in the spot, or null if
+   *         the spot is free
+   */
+  public Ticket getActiveTicketForSpot(String spotId) {
+    if (activeTickets.isLoaded()) {
+      return activeTickets.getBySpot(spotId);
+    }
+    return ticketDAO.findActiveTicketForSpot(spotId);
+  }
+
   public boolean closeTicket(String ticketId, LocalDateTime exitTime) {
     // Update exit time in database
     boolean updated = ticketDAO.updateExitTime(ticketId, exitTime);
 
     if (updated) {
+      dbManager.runAfterCommit(() -> activeTickets.remove(ticketId));
       System.out.println("Ticket closed: " + ticketId);
     } else {
       System.err.println("Failed to close ticket: " + ticketId);
@@ -69,11 +94,27 @@ public class TicketService {
     return ticketDAO.getAllActiveTickets();
   }
 
+  public boolean forEachOverstayingTicket(LocalDateTime enteredBefore, BiConsumer<? super Ticket, ? super Double> visitor) {
+    return ticketDAO.forEachOverstayingTicket(enteredBefore, Constants.DB_FETCH_SIZE, visitor);
+  }
+
+  public List<Ticket> getParkedVehiclesPage(Ticket after, int skip, int limit) {
+    return after == null
+        ? ticketDAO.getActiveTicketsPage(null, null, skip, limit)
+        : ticketDAO.getActiveTicketsPage(after.getEntryTime(), after.getTicketId(), skip, limit);
+  }
+
   public boolean isVehicleParked(String plateNumber) {
+    if (activeTickets.isLoaded()) {
+      return activeTickets.containsPlate(plateNumber);
+    }
     return ticketDAO.isVehicleParked(plateNumber);
   }
 
   public int getParkedVehicleCount() {
+    if (activeTickets.isLoaded()) {
+      return activeTickets.size();
+    }
     return ticketDAO.getActiveTicketCount();
   }
 
@@ -0,0 +1,156 @@
+package parkinglotmanagementsystem.vehicleandticket.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import parkinglotmanagementsystem.main.util.Constants;
+import parkinglotmanagementsystem.vehicleandticket.model.Vehicle;
+import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
+
+/**
+ * Recently seen vehicles by plate, so regulars are not read from the
+ * database on every entry and exit. Holds at most maxEntries vehicles and
+ * drops the least recently used first.
+ * The cache keeps its own copies and hands out a new one on every hit, so
+ * a caller changing a vehicle, e.g. its balance in an exit that later rolls
+ * back, never changes the cached one. Only committed changes are put.
+ */
+public class VehicleCache {
+
+  private static volatile VehicleCache instance;
+
+  private final int maxEntries;
+  private final Map<String, Entry> entriesByPlate; // access ordered, guarded by itself
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder evictions;
+
+  public VehicleCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.entriesByPlate = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        if (size() > VehicleCache.this.maxEntries) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public static VehicleCache getInstance() {
+    if (instance == null) {
+      synchronized (VehicleCache.class) {
+        if (instance == null) {
+          instance = new VehicleCache(Constants.VEHICLE_CACHE_SIZE);
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * @return a copy of the cached vehicle, or null if it is not cached
+   */
+  public Vehicle get(String plateNumber) {
+    Entry entry;
+    synchronized (entriesByPlate) {
+      entry = entriesByPlate.get(plateNumber);
+    }
+
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return VehicleService.newVehicle(plateNumber, entry.vehicleType, entry.balance);
+  }
+
+  /**
+   * Caches the vehicle as committed, replacing any older copy.
+   */
+  public void put(Vehicle vehicle) {
+    Entry entry = new Entry(vehicle.getVehicleType(), vehicle.getBalance());
+    synchronized (entriesByPlate) {
+      entriesByPlate.put(vehicle.getPlateNumber(), entry);
+    }
+  }
+
+  /**
+   * Caches a vehicle just read from the database unless a newer copy was
+   * put meanwhile by a committed update.
+   */
+  public void putIfAbsent(Vehicle vehicle) {
+    Entry entry = new Entry(vehicle.getVehicleType(), vehicle.getBalance());
+    synchronized (entriesByPlate) {
+      entriesByPlate.putIfAbsent(vehicle.getPlateNumber(), entry);
+    }
+  }
+
+  public void invalidate(String plateNumber) {
+    synchronized (entriesByPlate) {
+      entriesByPlate.remove(plateNumber);
+    }
+  }
+
+  public void clear() {
+    synchronized (entriesByPlate) {
+      entriesByPlate.clear();
+    }
+  }
+
+  // Metrics
+
+  public int size() {
+    synchronized (entriesByPlate) {
+      return entriesByPlate.size();
+    }
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Share of lookups answered from the cache, 0 to 100.
+   */
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long lookups = hitCount + misses.sum();
+    return lookups == 0 ? 0.0 : (hitCount * 100.0) / lookups;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("VehicleCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%]",
+        size(), maxEntries, getHitCount(), getMissCount(), getEvictionCount(), getHitRate());
+  }
+
+  private static class Entry {
+
+    private final VehicleType vehicleType;
+    private final double balance;
+
+    Entry(VehicleType vehicleType, double balance) {
+      this.vehicleType = vehicleType;
+      this.balance = balance;
+    }
+  }
+}
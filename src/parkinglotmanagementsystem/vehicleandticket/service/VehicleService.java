@@ -1,5 +1,6 @@
 package parkinglotmanagementsystem.vehicleandticket.service;
 
+import parkinglotmanagementsystem.main.dao.DatabaseManager;
 import parkinglotmanagementsystem.main.util.PlateValidator;
 import parkinglotmanagementsystem.vehicleandticket.dao.VehicleDAO;
 import parkinglotmanagementsystem.vehicleandticket.model.Car;
@@ -12,15 +13,19 @@ import parkinglotmanagementsystem.vehicleandticket.model.VehicleType;
 public class VehicleService {
 
   private VehicleDAO vehicleDAO;
+  private VehicleCache vehicleCache;
+  private DatabaseManager dbManager;
 
   public VehicleService() {
     this.vehicleDAO = new VehicleDAO();
+    this.vehicleCache = VehicleCache.getInstance();
+    this.dbManager = DatabaseManager.getInstance();
   }
 
   public Vehicle registerVehicle(String plateNumber, VehicleType vehicleType) {
     String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
 
-    Vehicle existingVehicle = vehicleDAO.findVehicleByPlate(normalizedPlate);
+    Vehicle existingVehicle = findVehicle(normalizedPlate);
     if (existingVehicle != null) {
       System.out.println("Vehicle already registered: " + normalizedPlate);
       return existingVehicle;
@@ -29,6 +34,7 @@ public class VehicleService {
     Vehicle vehicle = createVehicle(normalizedPlate, vehicleType);
 
     if (vehicleDAO.insertVehicle(vehicle)) {
+      cacheAfterCommit(vehicle);
       System.out.println("Vehicle registered: " + vehicle);
       return vehicle;
     } else {
@@ -37,13 +43,66 @@ public class VehicleService {
     }
   }
 
+  /**
+   * Registers the vehicle unless the plate is already known, and returns the
+   * stored record, whose type may differ from the requested one. A cached
+   * vehicle is returned without writing anything.
+   */
+  public Vehicle registerOrGetVehicle(String plateNumber, VehicleType vehicleType) {
+    String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
+
+    Vehicle cachedVehicle = vehicleCache.get(normalizedPlate);
+    if (cachedVehicle != null) {
+      return cachedVehicle;
+    }
+
+    Vehicle vehicle = vehicleDAO.upsertVehicle(createVehicle(normalizedPlate, vehicleType));
+    if (vehicle != null) {
+      cacheAfterCommit(vehicle);
+    }
+    return vehicle;
+  }
+
+  /**
+   * @return the vehicle, a copy the caller may change freely, or null if the
+   *         plate is not registered
+   */
   public Vehicle getVehicle(String plateNumber) {
     String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
-    return vehicleDAO.findVehicleByPlate(normalizedPlate);
+    return findVehicle(normalizedPlate);
   }
 
+  /**
+   * Saves the vehicle. Inside a unit of work the cache takes the change when
+   * it commits, so a rolled back balance is never served.
+   */
   public boolean updateVehicle(Vehicle vehicle) {
-    return vehicleDAO.updateVehicle(vehicle);
+    if (!vehicleDAO.updateVehicle(vehicle)) {
+      return false;
+    }
+
+    cacheAfterCommit(vehicle);
+    return true;
+  }
+
+  /**
+   * Saves the vehicle with a new balance. The given vehicle is not changed,
+   * so it can be one that others still hold, e.g. a quoted bill's.
+   */
+  public boolean updateBalance(Vehicle vehicle, double balance) {
+    return updateVehicle(newVehicle(vehicle.getPlateNumber(), vehicle.getVehicleType(), balance));
+  }
+
+  public boolean deleteVehicle(String plateNumber) {
+    String normalizedPlate = PlateValidator.validateAndNormalize(plateNumber);
+    if (!vehicleDAO.deleteVehicle(normalizedPlate)) {
+      return false;
+    }
+
+    // dropped now as well, so the vehicle is not served until the delete commits
+    vehicleCache.invalidate(normalizedPlate);
+    dbManager.runAfterCommit(() -> vehicleCache.invalidate(normalizedPlate));
+    return true;
   }
 
   public boolean isVehicleRegistered(String plateNumber) {
@@ -55,6 +114,30 @@ public class VehicleService {
     }
   }
 
+  public VehicleCache getVehicleCache() {
+    return vehicleCache;
+  }
+
+  private Vehicle findVehicle(String normalizedPlate) {
+    Vehicle vehicle = vehicleCache.get(normalizedPlate);
+    if (vehicle != null) {
+      return vehicle;
+    }
+
+    vehicle = vehicleDAO.findVehicleByPlate(normalizedPlate);
+    if (vehicle != null) {
+      // a vehicle updated meanwhile is already cached with its newer balance
+      vehicleCache.putIfAbsent(vehicle);
+    }
+    return vehicle;
+  }
+
+  private void cacheAfterCommit(Vehicle vehicle) {
+    // the caller may keep changing its vehicle, the cache takes it as saved
+    Vehicle saved = newVehicle(vehicle.getPlateNumber(), vehicle.getVehicleType(), vehicle.getBalance());
+    dbManager.runAfterCommit(() -> vehicleCache.put(saved));
+  }
+
   private Vehicle createVehicle(String plateNumber, VehicleType vehicleType) {
     switch (vehicleType) {
       case MOTORCYCLE:
@@ -69,4 +152,19 @@ public class VehicleService {
         throw new IllegalArgumentException("Unknown vehicle type: " + vehicleType);
     }
   }
+
+  static Vehicle newVehicle(String plateNumber, VehicleType vehicleType, double balance) {
+    switch (vehicleType) {
+      case MOTORCYCLE:
+        return new Motorcycle(plateNumber, balance);
+      case CAR:
+        return new Car(plateNumber, balance);
+      case SUV:
+        return new SUV(plateNumber, balance);
+      case HANDICAPPED:
+        return new HandicappedVehicle(plateNumber, balance);
+      default:
+        throw new IllegalArgumentException("Unknown vehicle type: " + vehicleType);
+    }
+  }
 }